@@ -0,0 +1,250 @@
+package ymb.github.excel.benchmark;
+
+import ymb.github.excel.CellType;
+import ymb.github.excel.annotation.ExcelColumn;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 性能测试使用的数据类型和数据
+ *
+ * @author YinMingBin
+ */
+public final class BenchmarkData {
+    private BenchmarkData() {
+    }
+
+    /**
+     * 平铺的数据（8列）
+     */
+    public static List<FlatRow> flatRows(int rows, int textLength) {
+        List<FlatRow> list = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            FlatRow row = new FlatRow();
+            row.setId(i);
+            row.setName(text("name" + i, textLength));
+            row.setCode(text("C" + (i % 1000), textLength));
+            row.setPrice(i * 1.25);
+            row.setQuantity(i % 100);
+            row.setDate(LocalDate.of(2020, 1, 1).plusDays(i % 1000));
+            row.setEnabled(i % 2 == 0);
+            row.setRemark(i % 3 == 0 ? null : text("remark" + i, textLength));
+            list.add(row);
+        }
+        return list;
+    }
+
+    /**
+     * 嵌套的数据（OBJECT列 + 每条数据3行的LIST列）
+     */
+    public static List<Order> orders(int rows, int textLength) {
+        List<Order> list = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Order order = new Order();
+            order.setId(i);
+            Customer customer = new Customer();
+            customer.setName(text("customer" + (i % 500), textLength));
+            customer.setPhone("1380000" + (1000 + i % 9000));
+            order.setCustomer(customer);
+            List<OrderLine> lines = new ArrayList<>(3);
+            for (int j = 0; j < 3; j++) {
+                OrderLine line = new OrderLine();
+                line.setSku(text("sku" + j, textLength));
+                line.setQuantity(j + 1);
+                lines.add(line);
+            }
+            order.setLines(lines);
+            order.setRemark(text("order" + i, textLength));
+            list.add(order);
+        }
+        return list;
+    }
+
+    /**
+     * 把前缀补齐到指定长度（列宽）
+     */
+    private static String text(String prefix, int length) {
+        if (prefix.length() >= length) {
+            return prefix;
+        }
+        char[] chars = new char[length];
+        Arrays.fill(chars, 'x');
+        prefix.getChars(0, prefix.length(), chars, 0);
+        return new String(chars);
+    }
+
+    public static class FlatRow {
+        @ExcelColumn(title = "ID", key = "id", type = CellType.NUMBER)
+        private long id;
+        @ExcelColumn(title = "名称", key = "name")
+        private String name;
+        @ExcelColumn(title = "编码", key = "code")
+        private String code;
+        @ExcelColumn(title = "价格", key = "price", type = CellType.NUMBER, format = "0.00")
+        private double price;
+        @ExcelColumn(title = "数量", key = "quantity", type = CellType.NUMBER)
+        private int quantity;
+        @ExcelColumn(title = "日期", key = "date", format = "yyyy-mm-dd")
+        private LocalDate date;
+        @ExcelColumn(title = "启用", key = "enabled", type = CellType.BOOLEAN)
+        private boolean enabled;
+        @ExcelColumn(title = "备注", key = "remark")
+        private String remark;
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public void setCode(String code) {
+            this.code = code;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public void setPrice(double price) {
+            this.price = price;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(int quantity) {
+            this.quantity = quantity;
+        }
+
+        public LocalDate getDate() {
+            return date;
+        }
+
+        public void setDate(LocalDate date) {
+            this.date = date;
+        }
+
+        public boolean getEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getRemark() {
+            return remark;
+        }
+
+        public void setRemark(String remark) {
+            this.remark = remark;
+        }
+    }
+
+    public static class Order {
+        @ExcelColumn(title = "订单号", type = CellType.NUMBER)
+        private long id;
+        @ExcelColumn(title = "客户", type = CellType.OBJECT)
+        private Customer customer;
+        @ExcelColumn(title = "明细")
+        private List<OrderLine> lines;
+        @ExcelColumn(title = "备注")
+        private String remark;
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public Customer getCustomer() {
+            return customer;
+        }
+
+        public void setCustomer(Customer customer) {
+            this.customer = customer;
+        }
+
+        public List<OrderLine> getLines() {
+            return lines;
+        }
+
+        public void setLines(List<OrderLine> lines) {
+            this.lines = lines;
+        }
+
+        public String getRemark() {
+            return remark;
+        }
+
+        public void setRemark(String remark) {
+            this.remark = remark;
+        }
+    }
+
+    public static class Customer {
+        @ExcelColumn(title = "名称")
+        private String name;
+        @ExcelColumn(title = "电话")
+        private String phone;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getPhone() {
+            return phone;
+        }
+
+        public void setPhone(String phone) {
+            this.phone = phone;
+        }
+    }
+
+    public static class OrderLine {
+        @ExcelColumn(title = "SKU")
+        private String sku;
+        @ExcelColumn(title = "数量", type = CellType.NUMBER)
+        private int quantity;
+
+        public String getSku() {
+            return sku;
+        }
+
+        public void setSku(String sku) {
+            this.sku = sku;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(int quantity) {
+            this.quantity = quantity;
+        }
+    }
+}
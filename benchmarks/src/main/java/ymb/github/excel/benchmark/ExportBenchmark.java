@@ -0,0 +1,117 @@
+package ymb.github.excel.benchmark;
+
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.openjdk.jmh.annotations.*;
+import ymb.github.excel.ExcelUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 导出：平铺（SXSSF、直接写xml）、嵌套（OBJECT/LIST）、operateCellStyle、autoColumnWidth、csv
+ *
+ * @author YinMingBin
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportBenchmark {
+    /** 数据条数 */
+    @Param({"1000", "50000"})
+    public int rows;
+    /** 字符串列的字符数 */
+    @Param({"8", "64"})
+    public int textLength;
+
+    private List<BenchmarkData.FlatRow> flatRows;
+    private List<BenchmarkData.Order> orders;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        flatRows = BenchmarkData.flatRows(rows, textLength);
+        orders = BenchmarkData.orders(rows, textLength);
+    }
+
+    @Benchmark
+    public void flat() throws IOException {
+        ExcelUtil<BenchmarkData.FlatRow> util = new ExcelUtil<>(BenchmarkData.FlatRow.class, flatRows);
+        write(util.execute());
+    }
+
+    @Benchmark
+    public void flatDirectXml() throws IOException {
+        ExcelUtil<BenchmarkData.FlatRow> util = new ExcelUtil<>(BenchmarkData.FlatRow.class, flatRows);
+        write(util.setDirectXml(true).execute());
+    }
+
+    @Benchmark
+    public void nested() throws IOException {
+        ExcelUtil<BenchmarkData.Order> util = new ExcelUtil<>(BenchmarkData.Order.class, orders);
+        write(util.setStreamMerge(true).execute());
+    }
+
+    @Benchmark
+    public void styled() throws IOException {
+        ExcelUtil<BenchmarkData.FlatRow> util = new ExcelUtil<>(BenchmarkData.FlatRow.class, flatRows);
+        util.operateCellStyle("quantity", (style, data) -> {
+            if (((BenchmarkData.FlatRow) data).getQuantity() > 50) {
+                style.setFillForegroundColor(IndexedColors.LIGHT_YELLOW.getIndex());
+                style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+            }
+        });
+        // 隔行修改对齐方式：每次回调都会重新设置对齐，覆盖样式池重置CTXf的路径
+        util.operateCellStyle("remark", (style, data) -> {
+            if (((BenchmarkData.FlatRow) data).getId() % 2 == 0) {
+                style.setAlignment(HorizontalAlignment.RIGHT);
+                style.setWrapText(true);
+            }
+        });
+        write(util.execute());
+    }
+
+    @Benchmark
+    public void autoColumnWidth() throws IOException {
+        ExcelUtil<BenchmarkData.FlatRow> util = new ExcelUtil<>(BenchmarkData.FlatRow.class, flatRows);
+        write(util.autoColumnWidth().execute());
+    }
+
+    @Benchmark
+    public void estimateColumnWidth() throws IOException {
+        ExcelUtil<BenchmarkData.FlatRow> util = new ExcelUtil<>(BenchmarkData.FlatRow.class, flatRows);
+        write(util.estimateColumnWidth().execute());
+    }
+
+    @Benchmark
+    public void csv() throws IOException {
+        ExcelUtil<BenchmarkData.FlatRow> util = new ExcelUtil<>(BenchmarkData.FlatRow.class, flatRows);
+        util.toCsv(NullOutputStream.INSTANCE);
+        util.close();
+    }
+
+    private static void write(ExcelUtil<?> util) throws IOException {
+        util.write(NullOutputStream.INSTANCE);
+        util.close();
+    }
+
+    /**
+     * 丢弃写入的内容，只测量生成的开销
+     */
+    static final class NullOutputStream extends OutputStream {
+        static final NullOutputStream INSTANCE = new NullOutputStream();
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
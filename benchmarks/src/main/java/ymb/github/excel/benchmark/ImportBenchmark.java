@@ -0,0 +1,69 @@
+package ymb.github.excel.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ymb.github.excel.ExcelImportUtil;
+import ymb.github.excel.ExcelUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 导入：按Class读取全部列、按SFunction读取部分列（XSSFWorkbook和流式读取）
+ *
+ * @author YinMingBin
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImportBenchmark {
+    /** 数据条数 */
+    @Param({"1000", "50000"})
+    public int rows;
+    /** 字符串列的字符数 */
+    @Param({"8", "64"})
+    public int textLength;
+    /** 是否流式读取 */
+    @Param({"false", "true"})
+    public boolean streaming;
+
+    private byte[] file;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        ExcelUtil<BenchmarkData.FlatRow> util = new ExcelUtil<>(BenchmarkData.FlatRow.class,
+                BenchmarkData.flatRows(rows, textLength));
+        file = util.execute().toByteArray();
+        util.close();
+    }
+
+    @Benchmark
+    public List<BenchmarkData.FlatRow> byClass() throws IOException {
+        ExcelImportUtil util = open();
+        try {
+            return util.read(BenchmarkData.FlatRow.class);
+        } finally {
+            util.close();
+        }
+    }
+
+    @Benchmark
+    public List<BenchmarkData.FlatRow> byFunction() throws IOException {
+        ExcelImportUtil util = open();
+        try {
+            return util.read(BenchmarkData.FlatRow.class,
+                    BenchmarkData.FlatRow::getId, BenchmarkData.FlatRow::getPrice, BenchmarkData.FlatRow::getQuantity);
+        } finally {
+            util.close();
+        }
+    }
+
+    private ExcelImportUtil open() throws IOException {
+        ByteArrayInputStream is = new ByteArrayInputStream(file);
+        return streaming ? ExcelImportUtil.streaming(is) : new ExcelImportUtil(is);
+    }
+}
@@ -0,0 +1,23 @@
+package ymb.github.excel;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 可以直接取出缓冲区的ByteArrayOutputStream，避免toByteArray再复制一份
+ *
+ * @author YinMingBin
+ */
+class BufferOutputStream extends ByteArrayOutputStream {
+
+    BufferOutputStream() {
+        super(8192);
+    }
+
+    /**
+     * @return 包装内部缓冲区的ByteBuffer（只读）
+     */
+    synchronized ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(buf, 0, count).asReadOnlyBuffer();
+    }
+}
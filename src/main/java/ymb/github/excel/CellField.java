@@ -2,6 +2,7 @@ package ymb.github.excel;
 
 import org.apache.poi.ss.usermodel.CellStyle;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
@@ -17,10 +18,45 @@ class CellField {
     private Class<?> fieldType;
     private CellStyle cellStyle;
     private Function<Object, Object> valueFun;
+    private CellValueWriter valueWriter;
+    private CellValueReader valueReader;
     private BiConsumer<Object, Object> settingFun;
     private List<CellField> cellFields;
+    private ExcelColumnClass columnClass;
     private int width;
 
+    /**
+     * 复制（包含子列），用于从缓存的列模板生成当前Sheet/当前读取使用的列
+     * @return 新的CellField
+     */
+    public CellField copy() {
+        CellField cellField = new CellField();
+        cellField.index = index;
+        cellField.title = title;
+        cellField.key = key;
+        cellField.cellType = cellType;
+        cellField.fieldType = fieldType;
+        cellField.cellStyle = cellStyle;
+        cellField.valueFun = valueFun;
+        cellField.valueWriter = valueWriter;
+        cellField.valueReader = valueReader;
+        cellField.settingFun = settingFun;
+        cellField.columnClass = columnClass;
+        cellField.width = width;
+        if (cellFields != null) {
+            cellField.cellFields = copy(cellFields);
+        }
+        return cellField;
+    }
+
+    static List<CellField> copy(List<CellField> fields) {
+        List<CellField> list = new ArrayList<>(fields.size());
+        for (CellField field : fields) {
+            list.add(field.copy());
+        }
+        return list;
+    }
+
     public void setTitle(String title) {
         this.title = title;
     }
@@ -84,6 +120,22 @@ class CellField {
         this.valueFun = valueFun;
     }
 
+    public CellValueWriter getValueWriter() {
+        return valueWriter;
+    }
+
+    public void setValueWriter(CellValueWriter valueWriter) {
+        this.valueWriter = valueWriter;
+    }
+
+    public CellValueReader getValueReader() {
+        return valueReader;
+    }
+
+    public void setValueReader(CellValueReader valueReader) {
+        this.valueReader = valueReader;
+    }
+
     public BiConsumer<Object, Object> getSettingFun() {
         return settingFun;
     }
@@ -100,6 +152,14 @@ class CellField {
         this.cellFields = cellFields;
     }
 
+    public ExcelColumnClass getColumnClass() {
+        return columnClass;
+    }
+
+    public void setColumnClass(ExcelColumnClass columnClass) {
+        this.columnClass = columnClass;
+    }
+
     public int getWidth() {
         return width;
     }
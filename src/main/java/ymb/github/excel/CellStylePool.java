@@ -0,0 +1,108 @@
+package ymb.github.excel;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFColor;
+import org.apache.poi.xssf.usermodel.XSSFFont;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTFont;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTXf;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * operateCellStyle使用的样式池（同一个Workbook共用一个）
+ * 回调修改的是一个没有加入Workbook的XSSFCellStyle（每次回调新建，可以使用XSSFColor等XSSF的功能），
+ * 回调结束后按样式和字体的属性复用已经创建过的CellStyle/Font，避免每个单元格都创建新的样式（Excel最多只能有64000个样式）
+ *
+ * @author YinMingBin
+ */
+final class CellStylePool {
+    private final SXSSFWorkbook workbook;
+    private final StylesTable stylesTable;
+    private final Map<List<Object>, CellStyle> styles = new HashMap<>();
+    private final Map<List<Object>, XSSFFont> fonts = new HashMap<>();
+    /** 初始样式的字体（字体下标 -> 原来的内容），回调中通过getFontAt(getFontIndex())修改后恢复 */
+    private final Map<Integer, CTFont> prototypeFonts = new HashMap<>();
+    private final Map<Integer, List<Object>> prototypeFontKeys = new HashMap<>();
+
+    CellStylePool(SXSSFWorkbook workbook) {
+        this.workbook = workbook;
+        this.stylesTable = workbook.getXSSFWorkbook().getStylesSource();
+    }
+
+    /**
+     * 执行样式回调，返回属性相同的样式
+     * @param prototype 初始样式
+     * @param cellStyleFun (CellStyle, RowData) -> void
+     * @param rowData 行数据
+     * @return CellStyle
+     */
+    synchronized CellStyle getCellStyle(CellStyle prototype, BiConsumer<CellStyle, Object> cellStyleFun, Object rowData) {
+        CTXf prototypeXf = ((XSSFCellStyle) prototype).getCoreXf();
+        int prototypeFontIndex = prototype.getFontIndex();
+        XSSFFont prototypeFont = stylesTable.getFontAt(prototypeFontIndex);
+        List<Object> prototypeFontKey = prototypeFontKeys.get(prototypeFontIndex);
+        if (prototypeFontKey == null) {
+            prototypeFontKey = getFontKey(prototypeFont);
+            prototypeFonts.put(prototypeFontIndex, (CTFont) prototypeFont.getCTFont().copy());
+            prototypeFontKeys.put(prototypeFontIndex, prototypeFontKey);
+            fonts.putIfAbsent(prototypeFontKey, prototypeFont);
+        }
+        // 不能复用同一个对象：重置CTXf后，XSSFCellStyle缓存的XSSFCellAlignment会指向已失效的节点
+        XSSFCellStyle scratch = new XSSFCellStyle(stylesTable);
+        scratch.getCoreXf().set(prototypeXf);
+        cellStyleFun.accept(scratch, rowData);
+
+        XSSFFont font = stylesTable.getFontAt(scratch.getFontIndex());
+        List<Object> fontKey = getFontKey(font);
+        XSSFFont pooledFont = fonts.get(fontKey);
+        if (font == prototypeFont && !fontKey.equals(prototypeFontKey)) {
+            // 回调直接修改了初始样式的字体：修改后的字体放入池中（复制为新字体），恢复初始字体
+            if (pooledFont == null) {
+                pooledFont = (XSSFFont) workbook.createFont();
+                pooledFont.getCTFont().set(font.getCTFont());
+                fonts.put(fontKey, pooledFont);
+            }
+            prototypeFont.getCTFont().set(prototypeFonts.get(prototypeFontIndex));
+        } else if (pooledFont == null) {
+            pooledFont = font;
+            fonts.put(fontKey, pooledFont);
+        }
+        if (pooledFont != font) {
+            scratch.setFont(pooledFont);
+        }
+
+        List<Object> key = getStyleKey(scratch);
+        CellStyle cellStyle = styles.get(key);
+        if (cellStyle == null) {
+            XSSFCellStyle created = (XSSFCellStyle) workbook.createCellStyle();
+            created.getCoreXf().set(scratch.getCoreXf());
+            cellStyle = created;
+            styles.put(key, cellStyle);
+        }
+        return cellStyle;
+    }
+
+    /**
+     * 样式属性（填充、边框、字体在StylesTable中已去重，按下标比较）
+     */
+    private static List<Object> getStyleKey(XSSFCellStyle style) {
+        CTXf xf = style.getCoreXf();
+        return Arrays.asList(xf.getXfId(), xf.getNumFmtId(), xf.getFontId(), xf.getFillId(), xf.getBorderId(),
+                style.getQuotePrefixed(), style.getHidden(), style.getLocked(), style.getAlignment(), style.getWrapText(),
+                style.getVerticalAlignment(), style.getRotation(), style.getIndention(), style.getShrinkToFit());
+    }
+
+    private static List<Object> getFontKey(XSSFFont font) {
+        XSSFColor xssfColor = font.getXSSFColor();
+        return Arrays.asList(font.getFontName(), font.getFontHeight(), font.getItalic(), font.getStrikeout(),
+                font.getColor(), xssfColor == null ? null : xssfColor.getARGBHex(), font.getTypeOffset(),
+                font.getUnderline(), font.getCharSet(), font.getBold(), font.getFamily(), font.getScheme());
+    }
+}
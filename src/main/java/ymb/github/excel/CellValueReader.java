@@ -0,0 +1,201 @@
+package ymb.github.excel;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.RichTextString;
+
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * 读取单元格的值并设置到属性中，根据属性的类型和CellType在生成列时选定一次（与CellValueWriter对应），
+ * 每个单元格只调用一次read，int、long、double属性直接调用基本类型的set方法，不装箱
+ *
+ * @author YinMingBin
+ */
+abstract class CellValueReader {
+
+    /**
+     * @param fieldType 属性的类型
+     * @param cellType 列的类型
+     * @param setterMethod set方法（为null时只能使用setter）
+     * @param setter set方法（值为null且属性为基本类型时不调用）
+     * @return CellValueReader（没有set方法时为null）
+     */
+    static CellValueReader of(Class<?> fieldType, CellType cellType, Method setterMethod, BiConsumer<Object, Object> setter) {
+        if (setter == null) {
+            return null;
+        }
+        if (CellType.BLANK.equals(cellType)) {
+            return new BoxedReader(cell -> null, setter);
+        }
+        if (LocalDate.class.isAssignableFrom(fieldType)) {
+            return new BoxedReader(cell -> cell.getLocalDateTimeCellValue().toLocalDate(), setter);
+        }
+        if (LocalDateTime.class.isAssignableFrom(fieldType)) {
+            return new BoxedReader(Cell::getLocalDateTimeCellValue, setter);
+        }
+        if (Date.class.isAssignableFrom(fieldType)) {
+            return new BoxedReader(Cell::getDateCellValue, setter);
+        }
+        if (RichTextString.class.isAssignableFrom(fieldType)) {
+            return new BoxedReader(Cell::getRichStringCellValue, setter);
+        }
+        if (Character.class.equals(fieldType) || char.class.equals(fieldType)) {
+            return new BoxedReader(cell -> cell.getStringCellValue().charAt(0), setter);
+        }
+        if (CellType.NUMBER.equals(cellType)) {
+            return ofNumber(fieldType, setterMethod, setter);
+        }
+        if (CellType.BOOLEAN.equals(cellType)) {
+            return new BoxedReader(Cell::getBooleanCellValue, setter);
+        }
+        if (CellType.STRING.equals(cellType) || CellType.FORMULA.equals(cellType)) {
+            if (fieldType.isEnum()) {
+                return new BoxedReader(cell -> toEnum(fieldType, getString(cell)), setter);
+            }
+            if (BigDecimal.class.equals(fieldType)) {
+                return new BoxedReader(cell -> toBigDecimal(getString(cell)), setter);
+            }
+            return new BoxedReader(CellValueReader::getString, setter);
+        }
+        return new BoxedReader(cell -> null, setter);
+    }
+
+    private static CellValueReader ofNumber(Class<?> fieldType, Method setterMethod, BiConsumer<Object, Object> setter) {
+        if (setterMethod != null) {
+            if (int.class.equals(fieldType)) {
+                return new IntReader(FieldAccessor.intSetter(setterMethod));
+            }
+            if (long.class.equals(fieldType)) {
+                return new LongReader(FieldAccessor.longSetter(setterMethod));
+            }
+            if (double.class.equals(fieldType)) {
+                return new DoubleReader(FieldAccessor.doubleSetter(setterMethod));
+            }
+        }
+        Function<Cell, Object> convert;
+        if (Byte.class.equals(fieldType) || byte.class.equals(fieldType)) {
+            convert = cell -> (byte) cell.getNumericCellValue();
+        } else if (Short.class.equals(fieldType) || short.class.equals(fieldType)) {
+            convert = cell -> (short) cell.getNumericCellValue();
+        } else if (Integer.class.equals(fieldType) || int.class.equals(fieldType)) {
+            convert = cell -> (int) cell.getNumericCellValue();
+        } else if (Long.class.equals(fieldType) || long.class.equals(fieldType)) {
+            convert = cell -> (long) cell.getNumericCellValue();
+        } else if (Float.class.equals(fieldType) || float.class.equals(fieldType)) {
+            convert = cell -> (float) cell.getNumericCellValue();
+        } else if (Double.class.equals(fieldType) || double.class.equals(fieldType)) {
+            convert = Cell::getNumericCellValue;
+        } else if (BigDecimal.class.equals(fieldType)) {
+            convert = cell -> BigDecimal.valueOf(cell.getNumericCellValue());
+        } else {
+            convert = cell -> null;
+        }
+        return new BoxedReader(convert, setter);
+    }
+
+    /**
+     * 使用getValue(index/key, fun)设置的取值函数
+     * @param getValue 取值函数
+     * @param setter set方法
+     * @return CellValueReader（没有set方法时为null）
+     */
+    static CellValueReader of(Function<Cell, ?> getValue, BiConsumer<Object, Object> setter) {
+        return setter == null ? null : new BoxedReader(getValue, setter);
+    }
+
+    /**
+     * 读取单元格的值并设置到对象中（转换失败或set方法失败时抛出异常，由调用方记录错误）
+     * @param cell 单元格（不为null）
+     * @param target 数据对象
+     */
+    abstract void read(Cell cell, Object target);
+
+    private static String getString(Cell cell) {
+        try {
+            return cell.getStringCellValue();
+        } catch (IllegalStateException e) {
+            return cell.toString();
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object toEnum(Class<?> enumType, String name) {
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        return Enum.valueOf((Class<? extends Enum>) enumType, name.trim());
+    }
+
+    private static BigDecimal toBigDecimal(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return new BigDecimal(value.trim());
+    }
+
+    private static final class BoxedReader extends CellValueReader {
+        private final Function<Cell, ?> convert;
+        private final BiConsumer<Object, Object> setter;
+
+        private BoxedReader(Function<Cell, ?> convert, BiConsumer<Object, Object> setter) {
+            this.convert = convert;
+            this.setter = setter;
+        }
+
+        @Override
+        void read(Cell cell, Object target) {
+            setter.accept(target, convert.apply(cell));
+        }
+    }
+
+    private static final class IntReader extends CellValueReader {
+        private final ObjIntConsumer<Object> setter;
+
+        private IntReader(ObjIntConsumer<Object> setter) {
+            this.setter = setter;
+        }
+
+        @Override
+        void read(Cell cell, Object target) {
+            int value = (int) cell.getNumericCellValue();
+            setter.accept(target, value);
+        }
+    }
+
+    private static final class LongReader extends CellValueReader {
+        private final ObjLongConsumer<Object> setter;
+
+        private LongReader(ObjLongConsumer<Object> setter) {
+            this.setter = setter;
+        }
+
+        @Override
+        void read(Cell cell, Object target) {
+            long value = (long) cell.getNumericCellValue();
+            setter.accept(target, value);
+        }
+    }
+
+    private static final class DoubleReader extends CellValueReader {
+        private final ObjDoubleConsumer<Object> setter;
+
+        private DoubleReader(ObjDoubleConsumer<Object> setter) {
+            this.setter = setter;
+        }
+
+        @Override
+        void read(Cell cell, Object target) {
+            double value = cell.getNumericCellValue();
+            setter.accept(target, value);
+        }
+    }
+}
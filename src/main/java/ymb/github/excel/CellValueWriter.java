@@ -0,0 +1,335 @@
+package ymb.github.excel;
+
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.util.LocaleUtil;
+import org.apache.poi.xssf.streaming.SXSSFCell;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * 把列的值写入单元格，根据属性的类型和CellType在生成列时选定一次，
+ * 数字直接取double，日期直接换算成Excel的日期数字，不再每个单元格都转成字符串再解析
+ * 类型不确定时（GENERIC）与原来一样按值的实际类型判断
+ *
+ * @author YinMingBin
+ */
+abstract class CellValueWriter {
+    private static final CellValueWriter GENERIC = new GenericWriter();
+    private static final CellValueWriter NUMBER = new NumberWriter();
+    private static final CellValueWriter FLOAT = new FloatWriter();
+    private static final CellValueWriter STRING_NUMBER = new StringNumberWriter();
+    private static final CellValueWriter BOOLEAN = new BooleanWriter();
+    private static final CellValueWriter STRING = new StringWriter();
+    private static final CellValueWriter LOCAL_DATE = new LocalDateWriter();
+    private static final CellValueWriter LOCAL_DATE_TIME = new LocalDateTimeWriter();
+    private static final CellValueWriter DATE = new DateWriter();
+    private static final CellValueWriter CALENDAR = new CalendarWriter();
+
+    /**
+     * @param fieldType 属性的类型
+     * @param cellType 列的类型
+     * @return CellValueWriter
+     */
+    static CellValueWriter of(Class<?> fieldType, CellType cellType) {
+        if (fieldType == null || cellType == null) {
+            return GENERIC;
+        }
+        // 日期不论CellType都写成日期数字
+        if (LocalDate.class.equals(fieldType)) {
+            return LOCAL_DATE;
+        }
+        if (LocalDateTime.class.equals(fieldType)) {
+            return LOCAL_DATE_TIME;
+        }
+        if (Date.class.isAssignableFrom(fieldType)) {
+            return DATE;
+        }
+        if (Calendar.class.isAssignableFrom(fieldType)) {
+            return CALENDAR;
+        }
+        if (CellType.NUMBER.equals(cellType)) {
+            if (float.class.equals(fieldType) || Float.class.equals(fieldType)) {
+                return FLOAT;
+            }
+            if (isNumber(fieldType)) {
+                return NUMBER;
+            }
+            if (String.class.equals(fieldType)) {
+                return STRING_NUMBER;
+            }
+        } else if (CellType.BOOLEAN.equals(cellType)) {
+            if (boolean.class.equals(fieldType) || Boolean.class.equals(fieldType)) {
+                return BOOLEAN;
+            }
+        } else if (String.class.equals(fieldType)) {
+            return STRING;
+        }
+        return GENERIC;
+    }
+
+    private static boolean isNumber(Class<?> fieldType) {
+        if (fieldType.isPrimitive()) {
+            return !boolean.class.equals(fieldType) && !char.class.equals(fieldType) && !void.class.equals(fieldType);
+        }
+        return Number.class.isAssignableFrom(fieldType);
+    }
+
+    /**
+     * 设置单元格的值
+     * @param cell 单元格
+     * @param value 值（不为null）
+     * @param cellType 列的类型
+     * @param dates 日期换算
+     */
+    abstract void setValue(SXSSFCell cell, Object value, CellType cellType, Dates dates);
+
+    /**
+     * 直接写入单元格的xml
+     * @param writer SheetXmlWriter
+     * @param value 值（不为null）
+     * @param cellType 列的类型
+     * @param dates 日期换算
+     */
+    abstract void writeXml(SheetXmlWriter writer, Object value, CellType cellType, Dates dates) throws IOException;
+
+    private static final class NumberWriter extends CellValueWriter {
+        @Override
+        void setValue(SXSSFCell cell, Object value, CellType cellType, Dates dates) {
+            cell.setCellValue(((Number) value).doubleValue());
+        }
+
+        @Override
+        void writeXml(SheetXmlWriter writer, Object value, CellType cellType, Dates dates) throws IOException {
+            writer.writeNumber(((Number) value).doubleValue());
+        }
+    }
+
+    /**
+     * float按十进制字符串转成double（与toString一致，0.1f写成0.1而不是0.10000000149011612）
+     */
+    private static final class FloatWriter extends CellValueWriter {
+        @Override
+        void setValue(SXSSFCell cell, Object value, CellType cellType, Dates dates) {
+            cell.setCellValue(Double.parseDouble(value.toString()));
+        }
+
+        @Override
+        void writeXml(SheetXmlWriter writer, Object value, CellType cellType, Dates dates) throws IOException {
+            writer.writeNumber(Double.parseDouble(value.toString()));
+        }
+    }
+
+    private static final class StringNumberWriter extends CellValueWriter {
+        @Override
+        void setValue(SXSSFCell cell, Object value, CellType cellType, Dates dates) {
+            cell.setCellValue(Double.parseDouble((String) value));
+        }
+
+        @Override
+        void writeXml(SheetXmlWriter writer, Object value, CellType cellType, Dates dates) throws IOException {
+            writer.writeNumber(Double.parseDouble((String) value));
+        }
+    }
+
+    private static final class BooleanWriter extends CellValueWriter {
+        @Override
+        void setValue(SXSSFCell cell, Object value, CellType cellType, Dates dates) {
+            cell.setCellValue((Boolean) value);
+        }
+
+        @Override
+        void writeXml(SheetXmlWriter writer, Object value, CellType cellType, Dates dates) throws IOException {
+            writer.writeBoolean((Boolean) value);
+        }
+    }
+
+    private static final class StringWriter extends CellValueWriter {
+        @Override
+        void setValue(SXSSFCell cell, Object value, CellType cellType, Dates dates) {
+            cell.setCellValue((String) value);
+        }
+
+        @Override
+        void writeXml(SheetXmlWriter writer, Object value, CellType cellType, Dates dates) throws IOException {
+            writer.writeString((String) value);
+        }
+    }
+
+    private static final class LocalDateWriter extends CellValueWriter {
+        @Override
+        void setValue(SXSSFCell cell, Object value, CellType cellType, Dates dates) {
+            cell.setCellValue(dates.getExcelDate((LocalDate) value));
+        }
+
+        @Override
+        void writeXml(SheetXmlWriter writer, Object value, CellType cellType, Dates dates) throws IOException {
+            writer.writeNumber(dates.getExcelDate((LocalDate) value));
+        }
+    }
+
+    private static final class LocalDateTimeWriter extends CellValueWriter {
+        @Override
+        void setValue(SXSSFCell cell, Object value, CellType cellType, Dates dates) {
+            cell.setCellValue(dates.getExcelDate((LocalDateTime) value));
+        }
+
+        @Override
+        void writeXml(SheetXmlWriter writer, Object value, CellType cellType, Dates dates) throws IOException {
+            writer.writeNumber(dates.getExcelDate((LocalDateTime) value));
+        }
+    }
+
+    private static final class DateWriter extends CellValueWriter {
+        @Override
+        void setValue(SXSSFCell cell, Object value, CellType cellType, Dates dates) {
+            cell.setCellValue(dates.getExcelDate((Date) value));
+        }
+
+        @Override
+        void writeXml(SheetXmlWriter writer, Object value, CellType cellType, Dates dates) throws IOException {
+            writer.writeNumber(dates.getExcelDate((Date) value));
+        }
+    }
+
+    private static final class CalendarWriter extends CellValueWriter {
+        @Override
+        void setValue(SXSSFCell cell, Object value, CellType cellType, Dates dates) {
+            cell.setCellValue(dates.getExcelDate((Calendar) value));
+        }
+
+        @Override
+        void writeXml(SheetXmlWriter writer, Object value, CellType cellType, Dates dates) throws IOException {
+            writer.writeNumber(dates.getExcelDate((Calendar) value));
+        }
+    }
+
+    /**
+     * 属性类型不确定时按值的实际类型判断
+     */
+    private static final class GenericWriter extends CellValueWriter {
+        @Override
+        void setValue(SXSSFCell cell, Object value, CellType cellType, Dates dates) {
+            if (value instanceof LocalDate) {
+                cell.setCellValue(dates.getExcelDate((LocalDate) value));
+            } else if (value instanceof LocalDateTime) {
+                cell.setCellValue(dates.getExcelDate((LocalDateTime) value));
+            } else if (value instanceof Date) {
+                cell.setCellValue(dates.getExcelDate((Date) value));
+            } else if (value instanceof Calendar) {
+                cell.setCellValue(dates.getExcelDate((Calendar) value));
+            } else if (value instanceof RichTextString) {
+                cell.setCellValue((RichTextString) value);
+            } else if (CellType.NUMBER.equals(cellType)) {
+                cell.setCellValue(toDouble(value));
+            } else if (CellType.BOOLEAN.equals(cellType)) {
+                cell.setCellValue(toBoolean(value));
+            } else {
+                cell.setCellValue(String.valueOf(value));
+            }
+        }
+
+        @Override
+        void writeXml(SheetXmlWriter writer, Object value, CellType cellType, Dates dates) throws IOException {
+            if (value instanceof LocalDate) {
+                writer.writeNumber(dates.getExcelDate((LocalDate) value));
+            } else if (value instanceof LocalDateTime) {
+                writer.writeNumber(dates.getExcelDate((LocalDateTime) value));
+            } else if (value instanceof Date) {
+                writer.writeNumber(dates.getExcelDate((Date) value));
+            } else if (value instanceof Calendar) {
+                writer.writeNumber(dates.getExcelDate((Calendar) value));
+            } else if (value instanceof RichTextString) {
+                writer.writeString(((RichTextString) value).getString());
+            } else if (CellType.NUMBER.equals(cellType)) {
+                writer.writeNumber(toDouble(value));
+            } else if (CellType.BOOLEAN.equals(cellType)) {
+                writer.writeBoolean(toBoolean(value));
+            } else {
+                writer.writeString(String.valueOf(value));
+            }
+        }
+
+        private static double toDouble(Object value) {
+            if (value instanceof Number && !(value instanceof Float)) {
+                return ((Number) value).doubleValue();
+            }
+            return Double.parseDouble(String.valueOf(value));
+        }
+
+        private static boolean toBoolean(Object value) {
+            if (value instanceof Boolean) {
+                return (Boolean) value;
+            }
+            return Boolean.parseBoolean(String.valueOf(value));
+        }
+    }
+
+    /**
+     * 日期换算成Excel的日期数字（结果与DateUtil.getExcelDate相同），时区在创建时取一次，
+     * 不为每个单元格创建Calendar
+     */
+    static final class Dates {
+        private static final long DAY_MILLISECONDS = 24L * 60 * 60 * 1000;
+        /** 1900年日期系统的第0天：1899-12-31 */
+        private static final long EPOCH_DAY_1900 = LocalDate.of(1899, 12, 31).toEpochDay();
+        /** 1904年日期系统的第0天：1904-01-01 */
+        private static final long EPOCH_DAY_1904 = LocalDate.of(1904, 1, 1).toEpochDay();
+        private final boolean date1904;
+        private final long epochDay;
+        private final TimeZone timeZone;
+
+        Dates(boolean date1904) {
+            this.date1904 = date1904;
+            this.epochDay = date1904 ? EPOCH_DAY_1904 : EPOCH_DAY_1900;
+            this.timeZone = LocaleUtil.getUserTimeZone();
+        }
+
+        double getExcelDate(LocalDate date) {
+            return getExcelDate(date.toEpochDay(), 0);
+        }
+
+        double getExcelDate(LocalDateTime date) {
+            long millisOfDay = date.getHour() * 3_600_000L + date.getMinute() * 60_000L
+                    + date.getSecond() * 1000L + date.getNano() / 1_000_000;
+            return getExcelDate(date.toLocalDate().toEpochDay(), millisOfDay);
+        }
+
+        double getExcelDate(Date date) {
+            long millis = date.getTime();
+            return getExcelDate(millis + timeZone.getOffset(millis));
+        }
+
+        double getExcelDate(Calendar date) {
+            long millis = date.getTimeInMillis();
+            return getExcelDate(millis + date.getTimeZone().getOffset(millis));
+        }
+
+        private double getExcelDate(long localMillis) {
+            return getExcelDate(Math.floorDiv(localMillis, DAY_MILLISECONDS), Math.floorMod(localMillis, DAY_MILLISECONDS));
+        }
+
+        private double getExcelDate(long epochDay, long millisOfDay) {
+            long day = epochDay - this.epochDay;
+            // 早于日期系统的开始
+            if (date1904 ? day < 0 : day < 1) {
+                return -1;
+            }
+            // 计算顺序与DateUtil相同，保证结果一致
+            if (date1904) {
+                double value = millisOfDay / (double) DAY_MILLISECONDS + (day + 1);
+                return value - 1;
+            }
+            double value = millisOfDay / (double) DAY_MILLISECONDS + day;
+            // 1900年日期系统中有不存在的1900-02-29
+            if (value >= 60) {
+                value++;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package ymb.github.excel;
+
+import ymb.github.excel.annotation.AllFieldColumn;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 数据类型的元数据缓存（属性、注解、get/set方法、排序好的列），按Class全局共享，线程安全
+ * 缓存中只保存与Workbook无关的部分，使用时复制一份，样式由各自的Workbook创建
+ *
+ * @author YinMingBin
+ */
+final class ClassMetadata {
+    private static final ClassValue<ClassMetadata> CACHE = new ClassValue<ClassMetadata>() {
+        @Override
+        protected ClassMetadata computeValue(Class<?> type) {
+            return new ClassMetadata(type);
+        }
+    };
+    private final Map<String, FieldMetadata> fieldMap;
+    private final ConcurrentMap<String, CellField> exportFieldMap = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CellField> importFieldMap = new ConcurrentHashMap<>();
+    private volatile List<CellField> exportFields;
+    private volatile List<CellField> importFields;
+
+    private ClassMetadata(Class<?> tClass) {
+        AllFieldColumn fieldColumn = tClass.getAnnotation(AllFieldColumn.class);
+        Map<String, FieldMetadata> fieldMap = new LinkedHashMap<>();
+        for (Field field : tClass.getDeclaredFields()) {
+            fieldMap.put(field.getName(), new FieldMetadata(tClass, field, fieldColumn));
+        }
+        this.fieldMap = Collections.unmodifiableMap(fieldMap);
+    }
+
+    static ClassMetadata of(Class<?> tClass) {
+        return CACHE.get(tClass);
+    }
+
+    /**
+     * 导出用的列（按注解读取，已排序）
+     * @return 列模板的副本
+     */
+    List<CellField> getExportFields() {
+        List<CellField> fields = this.exportFields;
+        if (fields == null) {
+            fields = new ArrayList<>();
+            for (FieldMetadata metadata : fieldMap.values()) {
+                if (metadata.column != null) {
+                    fields.add(createExportField(metadata, metadata.column));
+                }
+            }
+            SheetOperate.sortFields(fields);
+            this.exportFields = fields = Collections.unmodifiableList(fields);
+        }
+        return CellField.copy(fields);
+    }
+
+    /**
+     * 导出用的某一列
+     * @param fieldName 属性名
+     * @param column 列属性（为null时读取注解）
+     * @return 列模板的副本
+     * @throws NoSuchFieldException 属性不存在
+     */
+    CellField getExportField(String fieldName, ExcelColumnClass column) throws NoSuchFieldException {
+        FieldMetadata metadata = getFieldMetadata(fieldName);
+        if (column != null) {
+            return createExportField(metadata, column);
+        }
+        CellField cellField = exportFieldMap.get(fieldName);
+        if (cellField == null) {
+            column = metadata.column == null ? ExcelColumnClass.build() : metadata.column;
+            cellField = createExportField(metadata, column);
+            exportFieldMap.putIfAbsent(fieldName, cellField);
+        }
+        return cellField.copy();
+    }
+
+    /**
+     * 导入用的列（按注解读取，已排序并设置好列下标）
+     * @return 列模板的副本
+     */
+    List<CellField> getImportFields() {
+        List<CellField> fields = this.importFields;
+        if (fields == null) {
+            fields = new ArrayList<>();
+            for (FieldMetadata metadata : fieldMap.values()) {
+                CellField cellField = getImportField(metadata);
+                if (cellField != null) {
+                    fields.add(cellField.copy());
+                }
+            }
+            SheetOperate.sortFields(fields);
+            settingColumnIndex(fields, 0);
+            this.importFields = fields = Collections.unmodifiableList(fields);
+        }
+        return CellField.copy(fields);
+    }
+
+    /**
+     * 导入用的列（只包含指定的属性，已排序并设置好列下标）
+     * @param fieldNames 属性名
+     * @return 列模板的副本
+     * @throws NoSuchFieldException 属性不存在
+     */
+    List<CellField> getImportFields(String... fieldNames) throws NoSuchFieldException {
+        List<CellField> fields = new ArrayList<>(fieldNames.length);
+        for (String fieldName : fieldNames) {
+            CellField cellField = getImportField(getFieldMetadata(fieldName));
+            if (cellField != null) {
+                fields.add(cellField.copy());
+            }
+        }
+        SheetOperate.sortFields(fields);
+        settingColumnIndex(fields, 0);
+        return fields;
+    }
+
+    private FieldMetadata getFieldMetadata(String fieldName) throws NoSuchFieldException {
+        FieldMetadata metadata = fieldMap.get(fieldName);
+        if (metadata == null) {
+            throw new NoSuchFieldException(fieldName);
+        }
+        return metadata;
+    }
+
+    private CellField createExportField(FieldMetadata metadata, ExcelColumnClass column) {
+        CellField cellField = new CellField();
+        cellField.setIndex(column.getIndex());
+        cellField.setKey(column.getKey());
+        cellField.setColumnClass(column);
+        if (metadata.getter != null) {
+            cellField.setValueFun(metadata.getter);
+        } else {
+            System.err.println("The " + metadata.getterName + " method call failure\n" + metadata.getterError);
+        }
+        String title = column.getTitle();
+        Class<?> type = metadata.field.getType();
+        if (Collection.class.isAssignableFrom(type)) {
+            ParameterizedType genericType = (ParameterizedType) metadata.field.getGenericType();
+            Class<?> fieldType = (Class<?>) genericType.getActualTypeArguments()[0];
+            cellField.setCellFields(of(fieldType).getExportFields());
+            cellField.setCellType(CellType.LIST);
+            if (title != null && !title.isEmpty()) {
+                cellField.setTitle(title);
+            }
+        } else if (CellType.OBJECT.equals(column.getType())) {
+            cellField.setCellFields(of(type).getExportFields());
+            cellField.setCellType(CellType.OBJECT);
+            if (title != null && !title.isEmpty()) {
+                cellField.setTitle(title);
+            }
+        } else {
+            cellField.setTitle(title, metadata.defaultTitle);
+            cellField.setCellType(column.getType());
+            cellField.setFieldType(type);
+            cellField.setValueWriter(CellValueWriter.of(type, column.getType()));
+        }
+        return cellField;
+    }
+
+    private CellField getImportField(FieldMetadata metadata) {
+        if (metadata.column == null || Collection.class.isAssignableFrom(metadata.field.getType())) {
+            return null;
+        }
+        CellField cellField = importFieldMap.get(metadata.field.getName());
+        if (cellField == null) {
+            cellField = createImportField(metadata);
+            importFieldMap.putIfAbsent(metadata.field.getName(), cellField);
+        }
+        return cellField;
+    }
+
+    private CellField createImportField(FieldMetadata metadata) {
+        ExcelColumnClass column = metadata.column;
+        Class<?> type = metadata.field.getType();
+        CellField cellField = new CellField();
+        cellField.setFieldType(type);
+        cellField.setIndex(column.getIndex());
+        cellField.setKey(column.getKey());
+        cellField.setColumnClass(column);
+        if (metadata.setter != null) {
+            cellField.setSettingFun(metadata.setter);
+        } else {
+            System.err.println("The " + metadata.setterName + " method call failure\n" + metadata.setterError);
+        }
+        cellField.setCellType(column.getType());
+        // 标题用于按表头绑定列
+        if (CellType.OBJECT.equals(column.getType())) {
+            String title = column.getTitle();
+            if (title != null && !title.isEmpty()) {
+                cellField.setTitle(title);
+            }
+            cellField.setCellFields(of(type).getImportFields());
+        } else {
+            cellField.setTitle(column.getTitle(), metadata.defaultTitle);
+            cellField.setValueReader(CellValueReader.of(type, column.getType(), metadata.setterMethod, metadata.setter));
+        }
+        return cellField;
+    }
+
+    private static int settingColumnIndex(List<CellField> fields, int index) {
+        for (CellField field : fields) {
+            if (CellType.OBJECT.equals(field.getCellType())) {
+                index = settingColumnIndex(field.getCellFields(), index);
+                continue;
+            }
+            field.setIndex(index++);
+        }
+        return index;
+    }
+
+    /**
+     * 单个属性的元数据
+     */
+    private static final class FieldMetadata {
+        private final Field field;
+        private final ExcelColumnClass column;
+        private final String defaultTitle;
+        private final String getterName;
+        private final String setterName;
+        private final Function<Object, Object> getter;
+        private final BiConsumer<Object, Object> setter;
+        private final Method setterMethod;
+        private final String getterError;
+        private final String setterError;
+
+        FieldMetadata(Class<?> tClass, Field field, AllFieldColumn fieldColumn) {
+            this.field = field;
+            this.column = ExcelColumnClass.getExcelColumn(fieldColumn, field);
+            String name = field.getName();
+            char[] chars = name.toCharArray();
+            chars[0] = Character.toUpperCase(chars[0]);
+            String nameFormat = String.valueOf(chars);
+            this.defaultTitle = nameFormat.replaceAll("(?<![A-Z]|^)[A-Z]", " $0");
+            Class<?> type = field.getType();
+            this.getterName = getterName(tClass, type, nameFormat);
+            this.setterName = "set" + nameFormat;
+
+            Function<Object, Object> getter = null;
+            String getterError = null;
+            try {
+                final Function<Object, Object> fun = FieldAccessor.getter(tClass.getDeclaredMethod(getterName));
+                getter = obj -> {
+                    try {
+                        return fun.apply(obj);
+                    } catch (RuntimeException e) {
+                        System.err.println("Get " + name + " Field Get Method Fail：" + getterName + "\n" + e.getMessage());
+                        return "";
+                    }
+                };
+            } catch (NoSuchMethodException e) {
+                getterError = e.getMessage();
+            }
+            this.getter = getter;
+            this.getterError = getterError;
+
+            BiConsumer<Object, Object> setter = null;
+            Method setterMethod = null;
+            String setterError = null;
+            try {
+                setterMethod = tClass.getDeclaredMethod(setterName, type);
+                final BiConsumer<Object, Object> fun = FieldAccessor.setter(setterMethod);
+                final boolean primitive = type.isPrimitive();
+                // set方法的异常由ExcelImportUtil记录到本次读取的错误中
+                setter = (obj, val) -> {
+                    if (val == null && primitive) {
+                        return;
+                    }
+                    fun.accept(obj, val);
+                };
+            } catch (NoSuchMethodException e) {
+                setterError = e.getMessage();
+            }
+            this.setter = setter;
+            this.setterMethod = setterMethod;
+            this.setterError = setterError;
+        }
+
+        /**
+         * boolean属性没有getXxx方法时使用isXxx方法
+         */
+        private static String getterName(Class<?> tClass, Class<?> type, String nameFormat) {
+            String getterName = "get" + nameFormat;
+            if (type == boolean.class || type == Boolean.class) {
+                try {
+                    tClass.getDeclaredMethod(getterName);
+                } catch (NoSuchMethodException e) {
+                    String isName = "is" + nameFormat;
+                    try {
+                        tClass.getDeclaredMethod(isName);
+                        return isName;
+                    } catch (NoSuchMethodException ignored) {
+                        // 仍然报告getXxx方法不存在
+                    }
+                }
+            }
+            return getterName;
+        }
+    }
+}
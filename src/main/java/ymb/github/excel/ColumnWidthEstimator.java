@@ -0,0 +1,143 @@
+package ymb.github.excel;
+
+import org.apache.poi.ss.usermodel.Sheet;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * 估算列宽：写数据时按字符宽度表记录每列最宽的内容，写完后统一设置列宽，不使用AWT计算字体
+ * 字符宽度表是Calibri 11号字的字符宽度（单位为字符'0'宽度的1/256，与Excel列宽的单位相同），
+ * 其它字号按比例缩放；全角字符（中文等）按2个字符计算
+ *
+ * @author YinMingBin
+ */
+final class ColumnWidthEstimator {
+    private static final short DEFAULT_FONT_SIZE = 11;
+    /** Excel的最大列宽（255个字符） */
+    private static final int MAX_WIDTH = 255 * 256;
+    /** 单元格左右的空白 */
+    private static final int PADDING = 256;
+    private static final int WIDE_CHAR = 512;
+    private static final int OTHER_CHAR = 256;
+    /** 没有设置格式的日期，按yyyy-mm-dd hh:mm计算 */
+    private static final int DATE_WIDTH = 16 * 256;
+    /**
+     * ASCII 32~126的字符宽度
+     */
+    private static final int[] ASCII_WIDTHS = {
+            // space ! " # $ % & ' ( ) * + , - . /
+            114, 134, 202, 256, 256, 361, 345, 111, 153, 153, 256, 256, 126, 155, 128, 195,
+            // 0-9
+            256, 256, 256, 256, 256, 256, 256, 256, 256, 256,
+            // : ; < = > ? @
+            135, 135, 256, 256, 256, 232, 448,
+            // A-Z
+            292, 275, 269, 311, 247, 232, 319, 315, 127, 161, 262, 212, 432,
+            326, 334, 261, 340, 274, 232, 246, 324, 287, 449, 262, 246, 237,
+            // [ \ ] ^ _ `
+            156, 195, 156, 256, 256, 145,
+            // a-z
+            242, 265, 214, 265, 251, 154, 238, 265, 116, 121, 230, 116, 403,
+            265, 266, 265, 265, 176, 198, 169, 265, 228, 361, 219, 229, 200,
+            // { | } ~
+            167, 232, 167, 256
+    };
+
+    private int[] widths = new int[16];
+
+    /**
+     * 记录单元格内容的宽度
+     * @param column 列下标
+     * @param value 单元格的值
+     * @param format 列的格式（日期按格式的长度计算）
+     * @param fontSize 字体大小
+     */
+    void update(int column, Object value, String format, short fontSize) {
+        if (value == null) {
+            return;
+        }
+        int width;
+        if (value instanceof CharSequence) {
+            width = measure((CharSequence) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            width = measure(((Number) value).longValue());
+        } else if (value instanceof LocalDate || value instanceof LocalDateTime
+                || value instanceof Date || value instanceof Calendar) {
+            width = format == null || format.isEmpty() ? DATE_WIDTH : measure(format);
+        } else {
+            width = measure(String.valueOf(value));
+        }
+        update(column, width, fontSize);
+    }
+
+    private void update(int column, int width, short fontSize) {
+        if (fontSize > 0 && fontSize != DEFAULT_FONT_SIZE) {
+            width = width * fontSize / DEFAULT_FONT_SIZE;
+        }
+        if (column >= widths.length) {
+            widths = Arrays.copyOf(widths, Math.max(widths.length * 2, column + 1));
+        }
+        if (width > widths[column]) {
+            widths[column] = width;
+        }
+    }
+
+    /**
+     * 多行文本按最宽的一行计算
+     */
+    static int measure(CharSequence text) {
+        int max = 0;
+        int width = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                max = Math.max(max, width);
+                width = 0;
+            } else if (c >= 32 && c < 127) {
+                width += ASCII_WIDTHS[c - 32];
+            } else if (isWide(c)) {
+                width += WIDE_CHAR;
+            } else if (!Character.isLowSurrogate(c)) {
+                width += OTHER_CHAR;
+            }
+        }
+        return Math.max(max, width);
+    }
+
+    private static int measure(long value) {
+        int width = value < 0 ? ASCII_WIDTHS['-' - 32] : 0;
+        do {
+            width += ASCII_WIDTHS['0' - 32];
+            value /= 10;
+        } while (value != 0);
+        return width;
+    }
+
+    /**
+     * 全角字符（中日韩文字、全角符号等）
+     */
+    private static boolean isWide(char c) {
+        return (c >= 0x1100 && c <= 0x115F) || (c >= 0x2E80 && c <= 0xA4CF)
+                || (c >= 0xAC00 && c <= 0xD7A3) || (c >= 0xF900 && c <= 0xFAFF)
+                || (c >= 0xFE30 && c <= 0xFE4F) || (c >= 0xFF00 && c <= 0xFF60)
+                || (c >= 0xFFE0 && c <= 0xFFE6);
+    }
+
+    /**
+     * 设置列宽（不小于原来的列宽）
+     * @param sheet Sheet
+     */
+    void apply(Sheet sheet) {
+        for (int column = 0; column < widths.length; column++) {
+            int width = widths[column];
+            if (width > 0) {
+                width = Math.min(width + PADDING, MAX_WIDTH);
+                sheet.setColumnWidth(column, Math.max(sheet.getColumnWidth(column), width));
+            }
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package ymb.github.excel;
+
+import org.apache.poi.ss.usermodel.Cell;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * 按列读取的数据（ExcelImportUtil.readColumns），不创建数据对象：
+ * 整数、布尔列为long[]，小数列为double[]，其它列为字典编码的字符串（int[]编码 + 去重后的字符串）
+ * 列可以按@ExcelColumn的key或列下标获取
+ *
+ * @author YinMingBin
+ */
+@SuppressWarnings("unused")
+public final class ColumnarData {
+    private final int rowCount;
+    private final List<Column> columns;
+    private final Map<String, Column> columnByKeyMap = new HashMap<>();
+    private final Map<Integer, Column> columnByIndexMap = new HashMap<>();
+
+    private ColumnarData(int rowCount, List<Column> columns) {
+        this.rowCount = rowCount;
+        this.columns = Collections.unmodifiableList(columns);
+        for (Column column : columns) {
+            if (column.key != null && !column.key.isEmpty()) {
+                columnByKeyMap.putIfAbsent(column.key, column);
+            }
+            columnByIndexMap.putIfAbsent(column.index, column);
+        }
+    }
+
+    /**
+     * @return 数据的行数
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return 所有列（按列下标排序）
+     */
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    public Column getColumn(String key) {
+        return columnByKeyMap.get(key);
+    }
+
+    public Column getColumn(int index) {
+        return columnByIndexMap.get(index);
+    }
+
+    public LongColumn getLongColumn(String key) {
+        return as(getColumn(key), LongColumn.class, key);
+    }
+
+    public LongColumn getLongColumn(int index) {
+        return as(getColumn(index), LongColumn.class, index);
+    }
+
+    public DoubleColumn getDoubleColumn(String key) {
+        return as(getColumn(key), DoubleColumn.class, key);
+    }
+
+    public DoubleColumn getDoubleColumn(int index) {
+        return as(getColumn(index), DoubleColumn.class, index);
+    }
+
+    public StringColumn getStringColumn(String key) {
+        return as(getColumn(key), StringColumn.class, key);
+    }
+
+    public StringColumn getStringColumn(int index) {
+        return as(getColumn(index), StringColumn.class, index);
+    }
+
+    private static <C extends Column> C as(Column column, Class<C> type, Object name) {
+        if (column == null) {
+            return null;
+        }
+        if (!type.isInstance(column)) {
+            throw new IllegalArgumentException("ColumnarData -> column " + name + " is " + column.getClass().getSimpleName());
+        }
+        return type.cast(column);
+    }
+
+    /**
+     * 一列数据，没有值（没有单元格或无法转换）的行记为null
+     */
+    public abstract static class Column {
+        private final String key;
+        private final int index;
+        private final BitSet nulls;
+
+        private Column(String key, int index, BitSet nulls) {
+            this.key = key;
+            this.index = index;
+            this.nulls = nulls;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public boolean isNull(int row) {
+            return nulls.get(row);
+        }
+    }
+
+    public static final class LongColumn extends Column {
+        private final long[] values;
+
+        private LongColumn(String key, int index, BitSet nulls, long[] values) {
+            super(key, index, nulls);
+            this.values = values;
+        }
+
+        /**
+         * @return 每行的值（长度为行数，null记为0）
+         */
+        public long[] getValues() {
+            return values;
+        }
+
+        public long get(int row) {
+            return values[row];
+        }
+    }
+
+    public static final class DoubleColumn extends Column {
+        private final double[] values;
+
+        private DoubleColumn(String key, int index, BitSet nulls, double[] values) {
+            super(key, index, nulls);
+            this.values = values;
+        }
+
+        /**
+         * @return 每行的值（长度为行数，null记为NaN）
+         */
+        public double[] getValues() {
+            return values;
+        }
+
+        public double get(int row) {
+            return values[row];
+        }
+    }
+
+    public static final class StringColumn extends Column {
+        private final int[] codes;
+        private final String[] dictionary;
+
+        private StringColumn(String key, int index, BitSet nulls, int[] codes, String[] dictionary) {
+            super(key, index, nulls);
+            this.codes = codes;
+            this.dictionary = dictionary;
+        }
+
+        /**
+         * @return 每行的值在字典中的下标（null为-1）
+         */
+        public int[] getCodes() {
+            return codes;
+        }
+
+        /**
+         * @return 去重后的字符串（按第一次出现的顺序）
+         */
+        public String[] getDictionary() {
+            return dictionary;
+        }
+
+        public String get(int row) {
+            int code = codes[row];
+            return code < 0 ? null : dictionary[code];
+        }
+    }
+
+    /**
+     * 逐行追加单元格，最后生成ColumnarData
+     */
+    static final class Builder {
+        private final ColumnBuilder[] builders;
+        private int rowCount;
+
+        /**
+         * @param fields 导入用的列（OBJECT列展开为子列）
+         * @param getValue 列的自定义取值（getValue(index/key, fun)，没有时为null）
+         */
+        Builder(List<CellField> fields, Function<CellField, Function<Cell, ?>> getValue) {
+            List<ColumnBuilder> list = new ArrayList<>();
+            addColumns(fields, getValue, list);
+            list.sort(Comparator.comparingInt(builder -> builder.index));
+            this.builders = list.toArray(new ColumnBuilder[0]);
+        }
+
+        private static void addColumns(List<CellField> fields, Function<CellField, Function<Cell, ?>> getValue,
+                                       List<ColumnBuilder> list) {
+            for (CellField field : fields) {
+                if (CellType.OBJECT.equals(field.getCellType())) {
+                    addColumns(field.getCellFields(), getValue, list);
+                } else {
+                    list.add(ColumnBuilder.of(field, getValue.apply(field)));
+                }
+            }
+        }
+
+        void addRow(org.apache.poi.ss.usermodel.Row row) {
+            int rowIndex = rowCount++;
+            for (ColumnBuilder builder : builders) {
+                Cell cell = builder.index < 0 ? null : row.getCell(builder.index);
+                Object value = null;
+                if (cell != null && !CellType.BLANK.equals(builder.cellType)) {
+                    value = builder.getValue == null ? cell : builder.getValue.apply(cell);
+                }
+                builder.add(rowIndex, value);
+            }
+        }
+
+        ColumnarData build() {
+            List<Column> columns = new ArrayList<>(builders.length);
+            for (ColumnBuilder builder : builders) {
+                columns.add(builder.build(rowCount));
+            }
+            return new ColumnarData(rowCount, columns);
+        }
+    }
+
+    private abstract static class ColumnBuilder {
+        final String key;
+        final int index;
+        final CellType cellType;
+        final Function<Cell, ?> getValue;
+        final BitSet nulls = new BitSet();
+
+        ColumnBuilder(CellField field, Function<Cell, ?> getValue) {
+            this.key = field.getKey();
+            this.index = field.getIndex();
+            this.cellType = field.getCellType();
+            this.getValue = getValue;
+        }
+
+        static ColumnBuilder of(CellField field, Function<Cell, ?> getValue) {
+            Class<?> type = field.getFieldType();
+            if (type == long.class || type == int.class || type == short.class || type == byte.class
+                    || type == boolean.class || type == Long.class || type == Integer.class
+                    || type == Short.class || type == Byte.class || type == Boolean.class) {
+                return new LongColumnBuilder(field, getValue);
+            }
+            if (type == double.class || type == float.class || type == Double.class || type == Float.class
+                    || type == BigDecimal.class) {
+                return new DoubleColumnBuilder(field, getValue);
+            }
+            return new StringColumnBuilder(field, getValue);
+        }
+
+        /**
+         * @param value 单元格（没有自定义取值时）或自定义取值的结果，null表示没有值
+         */
+        abstract void add(int row, Object value);
+
+        abstract Column build(int rowCount);
+
+        static org.apache.poi.ss.usermodel.CellType typeOf(Cell cell) {
+            org.apache.poi.ss.usermodel.CellType type = cell.getCellType();
+            return type == org.apache.poi.ss.usermodel.CellType.FORMULA ? cell.getCachedFormulaResultType() : type;
+        }
+    }
+
+    private static final class LongColumnBuilder extends ColumnBuilder {
+        private long[] values = new long[64];
+
+        LongColumnBuilder(CellField field, Function<Cell, ?> getValue) {
+            super(field, getValue);
+        }
+
+        @Override
+        void add(int row, Object value) {
+            if (row >= values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            if (value instanceof Cell) {
+                Cell cell = (Cell) value;
+                switch (typeOf(cell)) {
+                    case NUMERIC:
+                        values[row] = (long) cell.getNumericCellValue();
+                        return;
+                    case BOOLEAN:
+                        values[row] = cell.getBooleanCellValue() ? 1 : 0;
+                        return;
+                    case STRING:
+                        value = cell.getStringCellValue();
+                        break;
+                    default:
+                        value = null;
+                        break;
+                }
+            }
+            if (value instanceof Number) {
+                values[row] = ((Number) value).longValue();
+            } else if (value instanceof Boolean) {
+                values[row] = (Boolean) value ? 1 : 0;
+            } else if (value != null) {
+                try {
+                    values[row] = (long) Double.parseDouble(value.toString().trim());
+                } catch (NumberFormatException e) {
+                    nulls.set(row);
+                }
+            } else {
+                nulls.set(row);
+            }
+        }
+
+        @Override
+        Column build(int rowCount) {
+            return new LongColumn(key, index, nulls, Arrays.copyOf(values, rowCount));
+        }
+    }
+
+    private static final class DoubleColumnBuilder extends ColumnBuilder {
+        private double[] values = new double[64];
+
+        DoubleColumnBuilder(CellField field, Function<Cell, ?> getValue) {
+            super(field, getValue);
+        }
+
+        @Override
+        void add(int row, Object value) {
+            if (row >= values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            if (value instanceof Cell) {
+                Cell cell = (Cell) value;
+                switch (typeOf(cell)) {
+                    case NUMERIC:
+                        values[row] = cell.getNumericCellValue();
+                        return;
+                    case STRING:
+                        value = cell.getStringCellValue();
+                        break;
+                    default:
+                        value = null;
+                        break;
+                }
+            }
+            if (value instanceof Number) {
+                values[row] = ((Number) value).doubleValue();
+                return;
+            }
+            if (value != null) {
+                try {
+                    values[row] = Double.parseDouble(value.toString().trim());
+                    return;
+                } catch (NumberFormatException ignored) {
+                    // 无法转换的记为null
+                }
+            }
+            values[row] = Double.NaN;
+            nulls.set(row);
+        }
+
+        @Override
+        Column build(int rowCount) {
+            return new DoubleColumn(key, index, nulls, Arrays.copyOf(values, rowCount));
+        }
+    }
+
+    private static final class StringColumnBuilder extends ColumnBuilder {
+        private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+        private final Map<String, Integer> codeMap = new HashMap<>();
+        private final List<String> dictionary = new ArrayList<>();
+        // 日期列的数字单元格按ISO格式（yyyy-MM-dd、yyyy-MM-ddTHH:mm:ss）转成字符串
+        private final boolean date;
+        private final boolean dateTime;
+        private int[] codes = new int[64];
+
+        StringColumnBuilder(CellField field, Function<Cell, ?> getValue) {
+            super(field, getValue);
+            Class<?> type = field.getFieldType();
+            this.date = LocalDate.class.equals(type);
+            this.dateTime = LocalDateTime.class.equals(type) || Date.class.isAssignableFrom(type);
+        }
+
+        @Override
+        void add(int row, Object value) {
+            if (row >= codes.length) {
+                codes = Arrays.copyOf(codes, codes.length * 2);
+            }
+            String text = null;
+            if (value instanceof Cell) {
+                Cell cell = (Cell) value;
+                org.apache.poi.ss.usermodel.CellType type = typeOf(cell);
+                if (type == org.apache.poi.ss.usermodel.CellType.STRING) {
+                    text = cell.getStringCellValue();
+                } else if (type == org.apache.poi.ss.usermodel.CellType.NUMERIC && (date || dateTime)) {
+                    LocalDateTime dateValue = cell.getLocalDateTimeCellValue();
+                    text = date ? dateValue.toLocalDate().toString() : dateValue.format(DATE_TIME_FORMATTER);
+                } else if (type != org.apache.poi.ss.usermodel.CellType.BLANK) {
+                    text = cell.toString();
+                }
+            } else if (value != null) {
+                text = value.toString();
+            }
+            if (text == null) {
+                codes[row] = -1;
+                nulls.set(row);
+                return;
+            }
+            Integer code = codeMap.get(text);
+            if (code == null) {
+                code = dictionary.size();
+                codeMap.put(text, code);
+                dictionary.add(text);
+            }
+            codes[row] = code;
+        }
+
+        @Override
+        Column build(int rowCount) {
+            return new StringColumn(key, index, nulls, Arrays.copyOf(codes, rowCount), dictionary.toArray(new String[0]));
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package ymb.github.excel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 流式写csv，字符先写入复用的CharBuffer，满了之后编码到复用的ByteBuffer再写出，内存占用与数据量无关
+ *
+ * @author YinMingBin
+ */
+final class CsvWriter {
+    private static final int BUFFER_SIZE = 8192;
+    private final OutputStream os;
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder;
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer bytes;
+    private final char separator;
+    private final String label;
+    private final String escape;
+    private final String line;
+
+    CsvWriter(OutputStream os, Charset charset, char separator, CharSequence label, CharSequence escape, String line) {
+        this(os, null, charset, separator, label, escape, line);
+    }
+
+    CsvWriter(WritableByteChannel channel, Charset charset, char separator, CharSequence label, CharSequence escape, String line) {
+        this(null, channel, charset, separator, label, escape, line);
+    }
+
+    private CsvWriter(OutputStream os, WritableByteChannel channel, Charset charset,
+                      char separator, CharSequence label, CharSequence escape, String line) {
+        this.os = os;
+        this.channel = channel;
+        // 与String.getBytes一致，无法编码的字符替换掉
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes = ByteBuffer.allocate((int) Math.ceil(BUFFER_SIZE * encoder.maxBytesPerChar()));
+        this.separator = separator;
+        this.label = label.toString();
+        this.escape = escape.toString();
+        this.line = line;
+    }
+
+    /**
+     * 写入表头和数据
+     * @param fields 列
+     * @param data 数据
+     */
+    <T> void write(List<CellField> fields, Iterator<T> data) throws IOException {
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                append(separator);
+            }
+            appendValue(fields.get(i).getTitle());
+        }
+        if (data != null) {
+            while (data.hasNext()) {
+                T datum = data.next();
+                append(line);
+                for (int i = 0; i < fields.size(); i++) {
+                    if (i > 0) {
+                        append(separator);
+                    }
+                    appendValue(String.valueOf(fields.get(i).getValueFun().apply(datum)));
+                }
+            }
+        }
+        finish();
+    }
+
+    /**
+     * label + value（value中的label替换成escape） + label
+     */
+    private void appendValue(String value) throws IOException {
+        append(label);
+        if (label.isEmpty()) {
+            // 与String.replace保持一致
+            append(value.replace(label, escape));
+            append(label);
+            return;
+        }
+        int start = 0;
+        int index;
+        while ((index = value.indexOf(label, start)) >= 0) {
+            append(value, start, index);
+            append(escape);
+            start = index + label.length();
+        }
+        append(value, start, value.length());
+        append(label);
+    }
+
+    private void append(String str) throws IOException {
+        append(str, 0, str.length());
+    }
+
+    private void append(String str, int start, int end) throws IOException {
+        while (start < end) {
+            if (!chars.hasRemaining()) {
+                encode(false);
+            }
+            int length = Math.min(end - start, chars.remaining());
+            chars.put(str, start, start + length);
+            start += length;
+        }
+    }
+
+    private void append(char c) throws IOException {
+        if (!chars.hasRemaining()) {
+            encode(false);
+        }
+        chars.put(c);
+    }
+
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+        CoderResult result;
+        while ((result = encoder.encode(chars, bytes, endOfInput)).isOverflow()) {
+            drain();
+        }
+        if (result.isError()) {
+            result.throwException();
+        }
+        // 末尾可能留下半个代理对，保留到下一次编码
+        chars.compact();
+    }
+
+    private void finish() throws IOException {
+        encode(true);
+        while (encoder.flush(bytes).isOverflow()) {
+            drain();
+        }
+        drain();
+        encoder.reset();
+        if (os != null) {
+            os.flush();
+        }
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+        if (os != null) {
+            os.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+        } else {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+        bytes.clear();
+    }
+}
@@ -2,22 +2,22 @@ package ymb.github.excel;
 
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import ymb.github.excel.annotation.AllFieldColumn;
 import ymb.github.excel.annotation.ExcelClass;
 
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Excel导入工具类
@@ -28,10 +28,12 @@ import java.util.function.Supplier;
 @SuppressWarnings("unused")
 public class ExcelImportUtil {
     private final Workbook workbook;
-    private Sheet sheet;
-    private int startRow;
+    private final SheetReader sheetReader;
     private Map<Integer, Function<Cell, ?>> getValueMap;
     private Map<String, Function<Cell, ?>> getValueByKeyMap;
+    private int maxErrors = 100;
+    private int failThreshold;
+    private boolean headerBinding;
 
     /**
      * 构造方法
@@ -41,6 +43,7 @@ public class ExcelImportUtil {
      */
     public ExcelImportUtil(InputStream is) throws IOException {
         this.workbook = new XSSFWorkbook(is);
+        this.sheetReader = null;
     }
 
     /**
@@ -52,6 +55,62 @@ public class ExcelImportUtil {
     public ExcelImportUtil(String path) throws IOException {
         InputStream is = getFileInputStream(path);
         this.workbook = new XSSFWorkbook(is);
+        this.sheetReader = null;
+    }
+
+    private ExcelImportUtil(SheetReader sheetReader) {
+        this.workbook = null;
+        this.sheetReader = sheetReader;
+    }
+
+    /**
+     * 流式读取（不构建XSSFWorkbook，逐行解析Sheet的xml，内存占用只与当前行有关）
+     * 流式读取时getWorkbook()返回null，getValue(...)中拿到的Cell为只读Cell
+     *
+     * @param is Excel文件输入流（会先写入临时文件，close时删除）
+     * @return ExcelImportUtil
+     * @throws IOException io异常
+     */
+    public static ExcelImportUtil streaming(InputStream is) throws IOException {
+        return streaming(is, false);
+    }
+
+    /**
+     * 流式读取，sharedStringsOnDisk为true时共享字符串表写入临时文件（内存映射），不占用堆内存，
+     * 只有被读取的单元格才会解码字符串（适合共享字符串很多的大文件）
+     *
+     * @param is Excel文件输入流（会先写入临时文件，close时删除）
+     * @param sharedStringsOnDisk 共享字符串表是否放到磁盘上
+     * @return ExcelImportUtil
+     * @throws IOException io异常
+     */
+    public static ExcelImportUtil streaming(InputStream is, boolean sharedStringsOnDisk) throws IOException {
+        return new ExcelImportUtil(new SheetReader(is, sharedStringsOnDisk));
+    }
+
+    /**
+     * 流式读取（不构建XSSFWorkbook，逐行解析Sheet的xml，内存占用只与当前行有关）
+     * 流式读取时getWorkbook()返回null，getValue(...)中拿到的Cell为只读Cell
+     *
+     * @param path Excel文件路径
+     * @return ExcelImportUtil
+     * @throws IOException io异常
+     */
+    public static ExcelImportUtil streaming(String path) throws IOException {
+        return streaming(path, false);
+    }
+
+    /**
+     * 流式读取，sharedStringsOnDisk为true时共享字符串表写入临时文件（内存映射），不占用堆内存，
+     * 只有被读取的单元格才会解码字符串（适合共享字符串很多的大文件）
+     *
+     * @param path Excel文件路径
+     * @param sharedStringsOnDisk 共享字符串表是否放到磁盘上
+     * @return ExcelImportUtil
+     * @throws IOException io异常
+     */
+    public static ExcelImportUtil streaming(String path, boolean sharedStringsOnDisk) throws IOException {
+        return new ExcelImportUtil(new SheetReader(path, sharedStringsOnDisk));
     }
 
     public static InputStream getFileInputStream(String path) throws IOException {
@@ -61,7 +120,7 @@ public class ExcelImportUtil {
     /**
      * 获取Workbook对象
      *
-     * @return Workbook对象
+     * @return Workbook对象（流式读取时为null）
      */
     public Workbook getWorkbook() {
         return workbook;
@@ -181,7 +240,7 @@ public class ExcelImportUtil {
      * @return 数据集
      */
     public <T> List<T> read(Class<T> tClass, String sheetName) {
-        return this.read(tClass, workbook.getSheetIndex(sheetName));
+        return this.read(tClass, getSheetIndex(sheetName));
     }
 
     /**
@@ -193,10 +252,128 @@ public class ExcelImportUtil {
      * @return 数据集
      */
     public <T> List<T> read(Class<T> tClass, int sheetIndex) {
-        return read(tClass, () -> {
-            ExcelClass annotation = tClass.getAnnotation(ExcelClass.class);
-            return getFields(tClass, annotation == null ? 0 : 1);
-        }, sheetIndex);
+        return read(tClass, () -> ClassMetadata.of(tClass).getImportFields(), sheetIndex);
+    }
+
+    /**
+     * 读取Excel文件中的数据（读取第一个Sheet的数据），单元格转换失败、set方法失败、创建数据对象失败时不终止读取，
+     * 错误与数据一起返回（错误数达到setFailThreshold(int)时抛出IllegalStateException）
+     *
+     * @param tClass 数据类型对象
+     * @param <T>    数据类型
+     * @return 数据和错误
+     */
+    public <T> ImportResult<T> readResult(Class<T> tClass) {
+        return this.readResult(tClass, 0);
+    }
+
+    /**
+     * 读取Excel文件中的数据，错误与数据一起返回
+     *
+     * @param tClass    数据类型对象
+     * @param sheetName Excel中Sheet的名称
+     * @param <T>       数据类型
+     * @return 数据和错误
+     */
+    public <T> ImportResult<T> readResult(Class<T> tClass, String sheetName) {
+        return this.readResult(tClass, getSheetIndex(sheetName));
+    }
+
+    /**
+     * 读取Excel文件中的数据，错误与数据一起返回
+     *
+     * @param tClass     数据类型对象
+     * @param sheetIndex Excel中Sheet的下标
+     * @param <T>        数据类型
+     * @return 数据和错误
+     */
+    public <T> ImportResult<T> readResult(Class<T> tClass, int sheetIndex) {
+        ImportErrors errors = new ImportErrors(maxErrors, failThreshold);
+        List<T> list = new ArrayList<>();
+        iterator(tClass, () -> ClassMetadata.of(tClass).getImportFields(), sheetIndex, errors, false)
+                .forEachRemaining(list::add);
+        return new ImportResult<>(list, errors);
+    }
+
+    /**
+     * 读取时最多记录的错误详情（默认100条，超过的只计数）
+     *
+     * @param maxErrors 错误详情的条数
+     * @return ExcelImportUtil
+     */
+    public ExcelImportUtil setMaxErrors(int maxErrors) {
+        this.maxErrors = maxErrors;
+        return this;
+    }
+
+    /**
+     * 读取时错误数达到failThreshold就抛出IllegalStateException终止读取（默认0，不终止）
+     *
+     * @param failThreshold 终止读取的错误数
+     * @return ExcelImportUtil
+     */
+    public ExcelImportUtil setFailThreshold(int failThreshold) {
+        this.failThreshold = failThreshold;
+        return this;
+    }
+
+    /**
+     * 是否按表头绑定列（默认false，按属性的顺序确定列下标）
+     * 为true时先读取一次表头行，用列的标题（或key）找到对应的列，列的顺序调整、多出的列都不影响读取，
+     * 表头中找不到的属性不赋值；getValue(index, fun)中的index为Excel中实际的列下标
+     *
+     * @param headerBinding 是否按表头绑定列
+     * @return ExcelImportUtil
+     */
+    public ExcelImportUtil setHeaderBinding(boolean headerBinding) {
+        this.headerBinding = headerBinding;
+        return this;
+    }
+
+    /**
+     * 读取多个Sheet的数据（每个Sheet指定自己的数据类型），各Sheet在ForkJoinPool.commonPool()中并行读取
+     *
+     * @param sheetClasses Sheet名称 -> 数据类型对象
+     * @return Sheet名称 -> 数据集（顺序与sheetClasses相同）
+     */
+    public Map<String, List<?>> readAll(Map<String, Class<?>> sheetClasses) {
+        return readAll(sheetClasses, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 读取多个Sheet的数据（每个Sheet指定自己的数据类型），各Sheet在线程池中并行读取
+     * 读取的状态都在各自的迭代器中，getValue(...)设置的函数会在多个线程中执行，
+     * 流式读取时每个Sheet的xml由各自的线程解析
+     *
+     * @param sheetClasses Sheet名称 -> 数据类型对象
+     * @param executor     线程池（null表示在当前线程中按顺序读取）
+     * @return Sheet名称 -> 数据集（顺序与sheetClasses相同）
+     */
+    public Map<String, List<?>> readAll(Map<String, Class<?>> sheetClasses, Executor executor) {
+        Map<String, List<?>> result = new LinkedHashMap<>();
+        Map<String, CompletableFuture<? extends List<?>>> futures = new LinkedHashMap<>();
+        for (Map.Entry<String, Class<?>> entry : sheetClasses.entrySet()) {
+            int sheetIndex = getSheetIndex(entry.getKey());
+            if (sheetIndex < 0) {
+                throw new IllegalArgumentException("ExcelImportUtil -> sheet " + entry.getKey() + " not found");
+            }
+            Class<?> tClass = entry.getValue();
+            if (executor == null) {
+                result.put(entry.getKey(), read(tClass, sheetIndex));
+            } else {
+                futures.put(entry.getKey(), CompletableFuture.supplyAsync(() -> read(tClass, sheetIndex), executor));
+            }
+        }
+        try {
+            for (Map.Entry<String, CompletableFuture<? extends List<?>>> entry : futures.entrySet()) {
+                result.put(entry.getKey(), SheetWriter.join(entry.getValue()));
+            }
+        } finally {
+            for (CompletableFuture<?> future : futures.values()) {
+                future.cancel(false);
+            }
+        }
+        return result;
     }
 
     /**
@@ -223,7 +400,7 @@ public class ExcelImportUtil {
      */
     @SafeVarargs
     public final <T> List<T> read(Class<T> tClass, String sheetName, SFunction<T, ?>... getFunArr) {
-        return read(tClass, workbook.getSheetIndex(sheetName), getFunArr);
+        return read(tClass, getSheetIndex(sheetName), getFunArr);
     }
 
     /**
@@ -238,214 +415,395 @@ public class ExcelImportUtil {
     @SafeVarargs
     public final <T> List<T> read(Class<T> tClass, int sheetIndex, SFunction<T, ?>... getFunArr) {
         return read(tClass, () -> {
-            Field[] fields = new Field[getFunArr.length];
-            for (int i = 0; i < getFunArr.length; i++) {
-                SFunction<T, ?> getFun = getFunArr[i];
-                try {
-                    String fieldName = SFunction.getFieldName(getFun);
-                    Field field = tClass.getDeclaredField(fieldName);
-                    fields[i] = field;
-                } catch (ReflectiveOperationException e) {
-                    throw new RuntimeException(e);
+            String[] fieldNames = new String[getFunArr.length];
+            try {
+                for (int i = 0; i < getFunArr.length; i++) {
+                    fieldNames[i] = SFunction.getFieldName(getFunArr[i]);
                 }
+                return ClassMetadata.of(tClass).getImportFields(fieldNames);
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException(e);
             }
-            ExcelClass annotation = tClass.getAnnotation(ExcelClass.class);
-            return getFields(tClass, annotation == null ? 0 : 1, fields);
         }, sheetIndex);
     }
 
-    private <T> List<T> read(Class<T> tClass, Supplier<List<CellField>> getCellFields, int sheetIndex) {
-        // 重置数据
-        this.sheet = workbook.getSheetAt(sheetIndex);
-        this.startRow = 0;
-        // 读取数据
-        return getDataList(tClass, getCellFields.get(), startRow);
+    /**
+     * 逐行读取Excel文件中的数据（读取第一个Sheet的数据），每读取一行就交给consumer处理，不会把数据放到List中
+     *
+     * @param tClass   数据类型对象
+     * @param consumer (RowData) -> void
+     * @param <T>      数据类型
+     */
+    public <T> void forEach(Class<T> tClass, Consumer<T> consumer) {
+        this.forEach(tClass, 0, consumer);
     }
 
-    public ExcelImportUtil getValue(int index, Function<Cell, ?> getFun) {
-        if (getValueMap == null) {
-            getValueMap = new HashMap<>();
+    /**
+     * 逐行读取Excel文件中的数据，每读取一行就交给consumer处理，不会把数据放到List中
+     *
+     * @param tClass    数据类型对象
+     * @param sheetName Excel中Sheet的名称
+     * @param consumer  (RowData) -> void
+     * @param <T>       数据类型
+     */
+    public <T> void forEach(Class<T> tClass, String sheetName, Consumer<T> consumer) {
+        this.forEach(tClass, getSheetIndex(sheetName), consumer);
+    }
+
+    /**
+     * 逐行读取Excel文件中的数据，每读取一行就交给consumer处理，不会把数据放到List中
+     *
+     * @param tClass     数据类型对象
+     * @param sheetIndex Excel中Sheet的下标
+     * @param consumer   (RowData) -> void
+     * @param <T>        数据类型
+     */
+    public <T> void forEach(Class<T> tClass, int sheetIndex, Consumer<T> consumer) {
+        this.iterator(tClass, sheetIndex).forEachRemaining(consumer);
+    }
+
+    /**
+     * 以迭代器的方式读取Excel文件中的数据（读取第一个Sheet的数据），调用next()时才读取并转换下一行
+     *
+     * @param tClass 数据类型对象
+     * @param <T>    数据类型
+     * @return 数据迭代器
+     */
+    public <T> Iterator<T> iterator(Class<T> tClass) {
+        return this.iterator(tClass, 0);
+    }
+
+    /**
+     * 以迭代器的方式读取Excel文件中的数据，调用next()时才读取并转换下一行
+     *
+     * @param tClass    数据类型对象
+     * @param sheetName Excel中Sheet的名称
+     * @param <T>       数据类型
+     * @return 数据迭代器
+     */
+    public <T> Iterator<T> iterator(Class<T> tClass, String sheetName) {
+        return this.iterator(tClass, getSheetIndex(sheetName));
+    }
+
+    /**
+     * 以迭代器的方式读取Excel文件中的数据，调用next()时才读取并转换下一行
+     *
+     * @param tClass     数据类型对象
+     * @param sheetIndex Excel中Sheet的下标
+     * @param <T>        数据类型
+     * @return 数据迭代器
+     */
+    public <T> Iterator<T> iterator(Class<T> tClass, int sheetIndex) {
+        return iterator(tClass, () -> ClassMetadata.of(tClass).getImportFields(), sheetIndex);
+    }
+
+    /**
+     * 以Stream的方式读取Excel文件中的数据（读取第一个Sheet的数据），数据在Stream被消费时逐行读取
+     *
+     * @param tClass 数据类型对象
+     * @param <T>    数据类型
+     * @return 数据Stream
+     */
+    public <T> Stream<T> stream(Class<T> tClass) {
+        return this.stream(tClass, 0);
+    }
+
+    /**
+     * 以Stream的方式读取Excel文件中的数据，数据在Stream被消费时逐行读取
+     *
+     * @param tClass    数据类型对象
+     * @param sheetName Excel中Sheet的名称
+     * @param <T>       数据类型
+     * @return 数据Stream
+     */
+    public <T> Stream<T> stream(Class<T> tClass, String sheetName) {
+        return this.stream(tClass, getSheetIndex(sheetName));
+    }
+
+    /**
+     * 以Stream的方式读取Excel文件中的数据，数据在Stream被消费时逐行读取
+     *
+     * @param tClass     数据类型对象
+     * @param sheetIndex Excel中Sheet的下标
+     * @param <T>        数据类型
+     * @return 数据Stream
+     */
+    public <T> Stream<T> stream(Class<T> tClass, int sheetIndex) {
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(iterator(tClass, sheetIndex),
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    /**
+     * 按列读取Excel文件中的数据（读取第一个Sheet的数据），不创建数据对象，
+     * 数字列存为long[]/double[]，其它列存为字典编码的字符串，适合只需要统计某几列的场景
+     *
+     * @param tClass 数据类型对象（只用于读取列的注解）
+     * @return 按列存放的数据
+     */
+    public ColumnarData readColumns(Class<?> tClass) {
+        return this.readColumns(tClass, 0);
+    }
+
+    /**
+     * 按列读取Excel文件中的数据，不创建数据对象
+     *
+     * @param tClass    数据类型对象（只用于读取列的注解）
+     * @param sheetName Excel中Sheet的名称
+     * @return 按列存放的数据
+     */
+    public ColumnarData readColumns(Class<?> tClass, String sheetName) {
+        return this.readColumns(tClass, getSheetIndex(sheetName));
+    }
+
+    /**
+     * 按列读取Excel文件中的数据，不创建数据对象
+     *
+     * @param tClass     数据类型对象（只用于读取列的注解）
+     * @param sheetIndex Excel中Sheet的下标
+     * @return 按列存放的数据
+     */
+    public ColumnarData readColumns(Class<?> tClass, int sheetIndex) {
+        List<CellField> fields = ClassMetadata.of(tClass).getImportFields();
+        Iterator<Row> rows = openRows(tClass, fields, sheetIndex);
+        ColumnarData.Builder builder = new ColumnarData.Builder(fields, this::getValueFun);
+        while (rows.hasNext()) {
+            builder.addRow(rows.next());
         }
-        getValueMap.put(index, getFun);
-        return this;
+        return builder.build();
     }
 
-    public ExcelImportUtil getValue(String key, Function<Cell, ?> getFun) {
-        if (getValueByKeyMap == null) {
-            getValueByKeyMap = new HashMap<>();
+    /**
+     * 列的自定义取值，按下标设置的优先于按key设置的（与getRowData一致）
+     */
+    private Function<Cell, ?> getValueFun(CellField field) {
+        Function<Cell, ?> cellFunction = null;
+        if (getValueMap != null) {
+            cellFunction = getValueMap.get(field.getIndex());
         }
-        getValueByKeyMap.put(key, getFun);
-        return this;
+        String key = field.getKey();
+        if (cellFunction == null && getValueByKeyMap != null && key != null && !key.isEmpty()) {
+            cellFunction = getValueByKeyMap.get(key);
+        }
+        return cellFunction;
     }
 
-    private List<CellField> getFields(Class<?> tClass, int rowIndex) {
-        return getFields(tClass, rowIndex, tClass.getDeclaredFields());
+    private <T> List<T> read(Class<T> tClass, Supplier<List<CellField>> getCellFields, int sheetIndex) {
+        List<T> list = new ArrayList<>();
+        iterator(tClass, getCellFields, sheetIndex).forEachRemaining(list::add);
+        return list;
     }
 
-    private List<CellField> getFields(Class<?> tClass, int rowIndex, Field[] fields) {
-        rowIndex++;
-        List<CellField> fieldList = new ArrayList<>();
-        AllFieldColumn fieldColumn = tClass.getAnnotation(AllFieldColumn.class);
-        for (Field field : fields) {
-            Class<?> type = field.getType();
-            if (Collection.class.isAssignableFrom(type)) {
-                continue;
+    private <T> Iterator<T> iterator(Class<T> tClass, Supplier<List<CellField>> getCellFields, int sheetIndex) {
+        return iterator(tClass, getCellFields, sheetIndex, new ImportErrors(maxErrors, failThreshold), true);
+    }
+
+    /**
+     * @param errors 本次读取的错误
+     * @param report 读取结束时是否输出错误汇总（readResult不输出）
+     */
+    private <T> Iterator<T> iterator(Class<T> tClass, Supplier<List<CellField>> getCellFields, int sheetIndex,
+                                     ImportErrors errors, boolean report) {
+        final List<CellField> fields = getCellFields.get();
+        final Iterator<Row> rows = openRows(tClass, fields, sheetIndex);
+        bindValueFuns(fields);
+        return new Iterator<T>() {
+            private T next;
+            private boolean reported = !report;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && rows.hasNext()) {
+                    next = getRowData(tClass, fields, rows.next(), errors);
+                }
+                if (next == null && !reported) {
+                    reported = true;
+                    errors.report();
+                }
+                return next != null;
             }
-            ExcelColumnClass column = ExcelColumnClass.getExcelColumn(fieldColumn, field);
-            if (column != null) {
-                CellField cellField = getCellField(tClass, field, column, rowIndex);
-                if (CellType.OBJECT.equals(column.getType())) {
-                    List<CellField> chiFields = getFields(type, rowIndex + 1, type.getDeclaredFields());
-                    cellField.setCellFields(chiFields);
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
                 }
-                fieldList.add(cellField);
+                T rowData = next;
+                next = null;
+                return rowData;
             }
+        };
+    }
+
+    /**
+     * 从表头之后开始读取Sheet的行（每次读取的状态都在返回的迭代器中，不同Sheet可以在不同线程中读取）
+     * 流式读取时只解析fields对应的列；按表头绑定列时先读取表头，修改fields的列下标
+     * （按表头绑定时表头按类的全部列计算行数，只读取部分属性时也能跳过完整的表头）
+     */
+    private Iterator<Row> openRows(Class<?> tClass, List<CellField> fields, int sheetIndex) {
+        ExcelClass annotation = tClass.getAnnotation(ExcelClass.class);
+        int headerRow = annotation == null ? 0 : 1;
+        int startRow = getStartRow(headerBinding ? ClassMetadata.of(tClass).getImportFields() : fields, headerRow);
+        if (headerBinding && startRow > headerRow) {
+            HeaderBinding.bind(fields, readRows(sheetIndex, headerRow, startRow - headerRow));
         }
-        SheetOperate.sortFields(fieldList);
-        settingColumnIndex(fieldList, 0);
-        return fieldList;
-    }
-
-    private CellField getCellField(Class<?> tClass, Field field, ExcelColumnClass column, int rowIndex) {
-        this.startRow = Math.max(rowIndex, this.startRow);
-        CellField cellField = new CellField();
-        Class<?> type = field.getType();
-        cellField.setFieldType(type);
-        cellField.setIndex(column.getIndex());
-        cellField.setKey(column.getKey());
-        String name = field.getName();
-        char[] chars = name.toCharArray();
-        chars[0] = Character.toUpperCase(chars[0]);
-        String methodName = "set" + String.valueOf(chars);
-        try {
-            final Method method = tClass.getDeclaredMethod(methodName, type);
-            cellField.setSettingFun((obj, val) -> {
-                try {
-                    method.invoke(obj, val);
-                } catch (IllegalAccessException | InvocationTargetException e) {
-                    System.err.println("Call " + name + " Field Set Method Fail：" + methodName + "\n" + e.getMessage());
-                }
-            });
-        } catch (NoSuchMethodException e) {
-            System.err.println("The " + methodName + " method call failure\n" + e.getMessage());
+        if (sheetReader != null) {
+            BitSet columns = new BitSet();
+            addColumns(fields, columns);
+            return sheetReader.rows(sheetIndex, startRow, columns);
         }
-        cellField.setCellType(column.getType());
-        return cellField;
+        return getRows(sheetIndex, startRow);
     }
 
-    private int settingColumnIndex(List<CellField> fields, int index) {
+    /**
+     * 读取时用到的列下标（OBJECT列本身的下标也用于判断是否有数据）
+     */
+    private static void addColumns(List<CellField> fields, BitSet columns) {
         for (CellField field : fields) {
+            if (field.getIndex() >= 0) {
+                columns.set(field.getIndex());
+            }
             if (CellType.OBJECT.equals(field.getCellType())) {
-                index = settingColumnIndex(field.getCellFields(), index);
-                continue;
+                addColumns(field.getCellFields(), columns);
             }
-            field.setIndex(index++);
         }
-        return index;
     }
 
-    private <T> List<T> getDataList(Class<T> tClass, List<CellField> fields, Integer rowIndex) {
-        List<T> list = new ArrayList<>();
-        Row row = this.sheet.getRow(rowIndex);
-        while (row != null) {
-            T rowData = getRowData(tClass, fields, row);
-            if (rowData != null) {
-                list.add(rowData);
+    /**
+     * 读取从rowIndex开始的count行（用于读取表头）
+     */
+    private List<Row> readRows(int sheetIndex, int rowIndex, int count) {
+        if (sheetReader != null) {
+            return sheetReader.readRows(sheetIndex, rowIndex, count);
+        }
+        Sheet sheet = workbook.getSheetAt(sheetIndex);
+        List<Row> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(sheet.getRow(rowIndex + i));
+        }
+        return rows;
+    }
+
+    private int getSheetIndex(String sheetName) {
+        return workbook == null ? sheetReader.getSheetIndex(sheetName) : workbook.getSheetIndex(sheetName);
+    }
+
+    private Iterator<Row> getRows(int sheetIndex, int rowIndex) {
+        final Sheet sheet = workbook.getSheetAt(sheetIndex);
+        return new Iterator<Row>() {
+            private int index = rowIndex;
+
+            @Override
+            public boolean hasNext() {
+                return sheet.getRow(index) != null;
+            }
+
+            @Override
+            public Row next() {
+                Row row = sheet.getRow(index);
+                if (row == null) {
+                    throw new NoSuchElementException();
+                }
+                index++;
+                return row;
             }
-            row = this.sheet.getRow(++rowIndex);
+        };
+    }
+
+    public ExcelImportUtil getValue(int index, Function<Cell, ?> getFun) {
+        if (getValueMap == null) {
+            getValueMap = new HashMap<>();
         }
-        return list;
+        getValueMap.put(index, getFun);
+        return this;
     }
 
+    public ExcelImportUtil getValue(String key, Function<Cell, ?> getFun) {
+        if (getValueByKeyMap == null) {
+            getValueByKeyMap = new HashMap<>();
+        }
+        getValueByKeyMap.put(key, getFun);
+        return this;
+    }
+
+    /**
+     * 数据开始的行（与导出的表头一致：有标题的OBJECT列占一行，子列在下一行，没有标题的子列在同一行）
+     *
+     * @param rowIndex fields的标题所在的行
+     */
+    private static int getStartRow(List<CellField> fields, int rowIndex) {
+        int startRow = fields.isEmpty() ? 0 : rowIndex + 1;
+        for (CellField field : fields) {
+            if (CellType.OBJECT.equals(field.getCellType())) {
+                String title = field.getTitle();
+                int childRow = title == null || title.isEmpty() ? rowIndex : rowIndex + 1;
+                startRow = Math.max(startRow, getStartRow(field.getCellFields(), childRow));
+            }
+        }
+        return startRow;
+    }
 
-    private <T> T getRowData(Class<T> tClass, List<CellField> fields, Row row) {
+    /**
+     * 一行数据，单元格的错误记录到errors中后继续读取下一个单元格
+     * @return 数据对象（创建失败时为null）
+     */
+    private <T> T getRowData(Class<T> tClass, List<CellField> fields, Row row, ImportErrors errors) {
+        T t;
         try {
-            T t = tClass.newInstance();
-            for (CellField field : fields) {
-                Class<?> fieldType = field.getFieldType();
-                int index = field.getIndex();
-                Cell cell = row.getCell(index);
-                if (cell == null) {
-                    continue;
-                }
-                Object value;
-                CellType cellType = field.getCellType();
-                if (CellType.OBJECT.equals(cellType)) {
-                    value = getRowData(fieldType, field.getCellFields(), row);
-                } else {
-                    value = getValue(cell, cellType, fieldType);
-                    if (getValueByKeyMap != null) {
-                        String key = field.getKey();
-                        if (key != null && !key.isEmpty()) {
-                            Function<Cell, ?> cellFunction = getValueByKeyMap.get(key);
-                            if (cellFunction != null) {
-                                value = cellFunction.apply(cell);
-                            }
-                        }
-                    }
-                    if (getValueMap != null) {
-                        Function<Cell, ?> cellFunction = getValueMap.get(index);
-                        if (cellFunction != null) {
-                            value = cellFunction.apply(cell);
-                        }
+            t = tClass.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            errors.add(row.getRowNum(), -1, null, new IllegalStateException(tClass
+                    + " create fail, A parameterless constructor is required", e));
+            return null;
+        }
+        for (CellField field : fields) {
+            Cell cell = field.getIndex() < 0 ? null : row.getCell(field.getIndex());
+            if (cell == null) {
+                continue;
+            }
+            try {
+                if (CellType.OBJECT.equals(field.getCellType())) {
+                    Object value = getRowData(field.getFieldType(), field.getCellFields(), row, errors);
+                    if (value != null) {
+                        field.getSettingFun().accept(t, value);
                     }
+                } else if (field.getValueReader() != null) {
+                    field.getValueReader().read(cell, t);
                 }
-                field.getSettingFun().accept(t, value);
+            } catch (RuntimeException e) {
+                errors.add(row.getRowNum(), field.getIndex(), field.getKey(), e);
             }
-            return t;
-        } catch (InstantiationException | IllegalAccessException e) {
-            System.err.println(tClass + " create fail, A parameterless constructor is required");
         }
-        return null;
+        return t;
     }
 
-    private Object getValue(Cell cell, CellType cellType, Class<?> fieldType) {
-        Object value = null;
-        if (CellType.BLANK.equals(cellType)) {
-            return null;
+    /**
+     * 有getValue(index/key, fun)设置的列改为使用设置的函数取值（列是本次读取的副本）
+     */
+    private void bindValueFuns(List<CellField> fields) {
+        if (getValueMap == null && getValueByKeyMap == null) {
+            return;
         }
-        if (LocalDate.class.isAssignableFrom(fieldType)) {
-            LocalDateTime cellValue = cell.getLocalDateTimeCellValue();
-            value = cellValue.toLocalDate();
-        } else if (LocalDateTime.class.isAssignableFrom(fieldType)) {
-            value = cell.getLocalDateTimeCellValue();
-        } else if (Date.class.isAssignableFrom(fieldType)) {
-            value = cell.getDateCellValue();
-        } else if (RichTextString.class.isAssignableFrom(fieldType)) {
-            value = cell.getRichStringCellValue();
-        } else if (Character.class.isAssignableFrom(fieldType) || char.class.isAssignableFrom(fieldType)) {
-            value = cell.getStringCellValue().charAt(0);
-        } else if (CellType.NUMBER.equals(cellType)) {
-            double cellValue = cell.getNumericCellValue();
-            if (Byte.class.isAssignableFrom(fieldType) || byte.class.isAssignableFrom(fieldType)) {
-                value = (byte) cellValue;
-            } else if (Short.class.isAssignableFrom(fieldType) || short.class.isAssignableFrom(fieldType)) {
-                value = (short) cellValue;
-            } else if (Integer.class.isAssignableFrom(fieldType) || int.class.isAssignableFrom(fieldType)) {
-                value = (int) cellValue;
-            } else if (Long.class.isAssignableFrom(fieldType) || long.class.isAssignableFrom(fieldType)) {
-                value = (long) cellValue;
-            } else if (Float.class.isAssignableFrom(fieldType) || float.class.isAssignableFrom(fieldType)) {
-                value = (float) cellValue;
-            } else if (Double.class.isAssignableFrom(fieldType) || double.class.isAssignableFrom(fieldType)) {
-                value = cellValue;
+        for (CellField field : fields) {
+            if (CellType.OBJECT.equals(field.getCellType())) {
+                bindValueFuns(field.getCellFields());
+                continue;
             }
-        } else if (CellType.BOOLEAN.equals(cellType)) {
-            value = cell.getBooleanCellValue();
-        } else if (CellType.STRING.equals(cellType) || CellType.FORMULA.equals(cellType)) {
-            try {
-                value = cell.getStringCellValue();
-            } catch (IllegalStateException e) {
-                value = cell.toString();
+            Function<Cell, ?> getValue = getValueFun(field);
+            if (getValue != null) {
+                field.setValueReader(CellValueReader.of(getValue, field.getSettingFun()));
             }
         }
-        return value;
     }
 
     /**
-     * 关闭Workbook流
+     * 关闭Workbook流（流式读取时删除临时文件）
      */
     public void close() {
+        if (sheetReader != null) {
+            sheetReader.close();
+            return;
+        }
         try {
             workbook.close();
         } catch (IOException e) {
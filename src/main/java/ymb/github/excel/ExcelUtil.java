@@ -1,25 +1,27 @@
 package ymb.github.excel;
 
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.util.TempFile;
 import org.apache.poi.xssf.streaming.SXSSFCell;
 import org.apache.poi.xssf.streaming.SXSSFRow;
 import org.apache.poi.xssf.streaming.SXSSFSheet;
 import org.apache.poi.xssf.streaming.SXSSFWorkbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import ymb.github.excel.annotation.ExcelClass;
 
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
@@ -30,28 +32,37 @@ import java.util.function.Consumer;
 public class ExcelUtil<T> implements Operate<T, ExcelUtil<T>> {
     private final SheetOperate<T> sheetOperate;
     private final Stack<SheetOperate<?>> otherSheet = new Stack<>();
-    private final SXSSFWorkbook workbook;
-    private SheetOperate<?> currentSheet;
+    private SXSSFWorkbook workbook;
     private String csv;
-    private final Map<Integer, Integer> maxWidthMap = new HashMap<>();
-    // int[0] = firstRow, int[1] = firstCol (firstCol == endCol)
-    private Map<Integer, int[]> columnRangeMap = new HashMap<>();
-    private Map<String, int[]> columnRangeByKeyMap = new HashMap<>();
+    // 追加模式中第一个Sheet的SheetWriter（null表示没有open）
+    private SheetWriter appendWriter;
+    // 已生成的Sheet对应的SheetWriter（setColumnWidth使用其中记录的每列最大宽度）
+    private final Map<Sheet, SheetWriter> sheetWriters = new IdentityHashMap<>();
+    private int appendRowIndex;
+    private int appendFirstRow;
+    // 数据行的窗口大小（0表示自动：没有LIST列时为1（有operateRow/operateSheet时为100），有LIST列时为mergeRowAccessWindowSize）
+    private int rowAccessWindowSize = 0;
+    private int mergeRowAccessWindowSize = SXSSFWorkbook.DEFAULT_WINDOW_SIZE;
+    private boolean streamMerge = false;
+    private boolean compressTempFiles = true;
+    private boolean useSharedStringsTable = false;
+    private Executor executor;
+    private boolean directXml = false;
 
     public ExcelUtil(Class<T> tClass) {
-        this.workbook = new SXSSFWorkbook();
+        this.workbook = createWorkbook(compressTempFiles, useSharedStringsTable);
         this.sheetOperate = SheetOperate.create(tClass, workbook);
         otherSheet.add(this.sheetOperate);
     }
 
     public ExcelUtil(Class<T> tClass, String sheetName) {
-        this.workbook = new SXSSFWorkbook();
+        this.workbook = createWorkbook(compressTempFiles, useSharedStringsTable);
         this.sheetOperate = SheetOperate.create(tClass, sheetName, workbook);
         otherSheet.add(this.sheetOperate);
     }
 
     public ExcelUtil(Class<T> tClass, List<T> data) {
-        this.workbook = new SXSSFWorkbook();
+        this.workbook = createWorkbook(compressTempFiles, useSharedStringsTable);
         this.sheetOperate = SheetOperate.create(tClass, workbook);
         otherSheet.add(this.sheetOperate);
 
@@ -59,17 +70,116 @@ public class ExcelUtil<T> implements Operate<T, ExcelUtil<T>> {
     }
 
     public ExcelUtil(Class<T> tClass, String sheetName, List<T> data) {
-        this.workbook = new SXSSFWorkbook();
+        this.workbook = createWorkbook(compressTempFiles, useSharedStringsTable);
         this.sheetOperate = SheetOperate.create(tClass, sheetName, workbook);
         otherSheet.add(this.sheetOperate);
 
         this.setData(data);
     }
 
+    private static SXSSFWorkbook createWorkbook(boolean compressTempFiles, boolean useSharedStringsTable) {
+        return new ExcelWorkbook(null, SXSSFWorkbook.DEFAULT_WINDOW_SIZE, compressTempFiles, useSharedStringsTable);
+    }
+
+    /**
+     * 设置并行写入数据使用的线程池（默认不并行）
+     * 多个Sheet时各Sheet并行写入，表头和样式仍然按顺序创建，Sheet的顺序不变；
+     * 一个Sheet（或使用共享字符串表）时在线程池中分段取值和计算样式，按顺序写入行
+     * 多个Sheet并行时operateCell、operateRow等回调在线程池中执行，分段编码时operateCellStyle在线程池中执行
+     * @param executor 线程池（null表示不并行）
+     * @return this
+     */
+    public ExcelUtil<T> setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * 设置是否直接写入数据行的xml（默认不直接写入），不创建SXSSFRow、SXSSFCell
+     * 设置了operateCell、operateRow、operateSheet、自适应列宽，有LIST、公式列或使用共享字符串表的Sheet仍然使用SXSSF写入
+     * （直接写入的行不在SXSSFSheet的行记录中）
+     * @param directXml 是否直接写入xml
+     * @return this
+     */
+    public ExcelUtil<T> setDirectXml(boolean directXml) {
+        this.directXml = directXml;
+        return this;
+    }
+
     public SXSSFWorkbook getWorkbook() {
         return workbook;
     }
 
+    /**
+     * 设置数据行在内存中保留的行数，超出的行写入临时文件，之后sheet.getRow(n)返回null
+     * 默认（0）没有LIST列的Sheet只保留1行（设置了operateRow/operateSheet时保留100行，与之前的版本相同），
+     * 有LIST列的Sheet需要回头合并单元格，使用mergeRowAccessWindowSize
+     * @param rowAccessWindowSize 行数（-1表示全部保留在内存中）
+     * @return this
+     */
+    public ExcelUtil<T> setRowAccessWindowSize(int rowAccessWindowSize) {
+        this.rowAccessWindowSize = rowAccessWindowSize;
+        return this;
+    }
+
+    /**
+     * 设置有LIST列的Sheet在内存中保留的行数（需要大于一条数据占用的行数，默认100）
+     * @param mergeRowAccessWindowSize 行数（-1表示全部保留在内存中）
+     * @return this
+     */
+    public ExcelUtil<T> setMergeRowAccessWindowSize(int mergeRowAccessWindowSize) {
+        this.mergeRowAccessWindowSize = mergeRowAccessWindowSize;
+        return this;
+    }
+
+    /**
+     * 设置有LIST列的Sheet是否流式合并（默认否）：一条数据的行全部写完、合并单元格设置好样式后，
+     * 只保留rowAccessWindowSize行（默认1行，设置了operateRow/operateSheet时为100行），其余写入临时文件，不使用mergeRowAccessWindowSize，
+     * 一条数据占用的行数不受窗口限制；合并区域在Sheet结束时（operateSheet之前）一次性添加
+     * @param streamMerge 是否流式合并
+     * @return this
+     */
+    public ExcelUtil<T> setStreamMerge(boolean streamMerge) {
+        this.streamMerge = streamMerge;
+        return this;
+    }
+
+    /**
+     * 设置临时文件是否使用gzip压缩（默认压缩，之后创建的Sheet生效）
+     * @param compressTempFiles 是否压缩
+     * @return this
+     */
+    public ExcelUtil<T> setCompressTempFiles(boolean compressTempFiles) {
+        this.compressTempFiles = compressTempFiles;
+        workbook.setCompressTempFiles(compressTempFiles);
+        return this;
+    }
+
+    /**
+     * 设置是否使用共享字符串表（默认不使用，字符串直接写在Sheet中）
+     * 共享字符串表会保存在内存中，重复字符串多时文件更小；修改后会重新创建Workbook，需要在其它设置之前调用
+     * @param useSharedStringsTable 是否使用共享字符串表
+     * @return this
+     */
+    public ExcelUtil<T> setUseSharedStringsTable(boolean useSharedStringsTable) {
+        if (this.useSharedStringsTable != useSharedStringsTable) {
+            this.useSharedStringsTable = useSharedStringsTable;
+            this.close();
+            this.workbook = createWorkbook(compressTempFiles, useSharedStringsTable);
+            CellStylePool cellStylePool = null;
+            for (SheetOperate<?> operate : otherSheet) {
+                operate.setWorkbook(this.workbook);
+                if (cellStylePool == null) {
+                    cellStylePool = operate.getCellStylePool();
+                } else {
+                    operate.setCellStylePool(cellStylePool);
+                }
+            }
+        }
+        return this;
+    }
+
+
     public String getCsv() {
         return csv;
     }
@@ -245,6 +355,8 @@ public class ExcelUtil<T> implements Operate<T, ExcelUtil<T>> {
 
     /**
      * 操作Sheet，在数据生成完之后执行
+     * 超出rowAccessWindowSize的行已经写入临时文件，sheet.getRow(n)返回null
+     * （没有设置rowAccessWindowSize时，设置了operateSheet/operateRow的Sheet保留最后100行）
      * @param operateSheet (Sheet, dataList) -> void
      * @return this
      */
@@ -288,6 +400,16 @@ public class ExcelUtil<T> implements Operate<T, ExcelUtil<T>> {
         return this;
     }
 
+    /**
+     * 启用估算列宽（按字符宽度表估算，写完数据后统一设置列宽，比autoColumnWidth快很多）
+     * @return this
+     */
+    @Override
+    public ExcelUtil<T> estimateColumnWidth() {
+        sheetOperate.estimateColumnWidth();
+        return this;
+    }
+
     /**
      * 设置数据校验（下拉序列）
      * @param index 列下标
@@ -334,6 +456,7 @@ public class ExcelUtil<T> implements Operate<T, ExcelUtil<T>> {
      */
     public ExcelUtil<T> addSheet(SheetOperate<?> sheetOperate) {
         sheetOperate.setWorkbook(this.workbook);
+        sheetOperate.setCellStylePool(this.sheetOperate.getCellStylePool());
         otherSheet.add(sheetOperate);
         return this;
     }
@@ -343,59 +466,110 @@ public class ExcelUtil<T> implements Operate<T, ExcelUtil<T>> {
      * @return this
      */
     public ExcelUtil<T> execute() {
-        XSSFWorkbook xssfWorkbook = workbook.getXSSFWorkbook();
-        for (int i = xssfWorkbook.getNumberOfSheets() - 1; i >= 0; i--) {
-            xssfWorkbook.removeSheetAt(i);
+        clearSheets();
+        this.appendWriter = null;
+        render(otherSheet);
+        return this;
+    }
+
+    /**
+     * 追加模式：生成第一个Sheet的表头，之后通过append分批写入数据，最后调用finish
+     * 数据不需要一次性放在内存中，超出SXSSFWorkbook窗口的行会写入临时文件
+     * @return this
+     */
+    public ExcelUtil<T> open() {
+        clearSheets();
+        this.appendWriter = new SheetWriter(workbook, sheetOperate);
+        int dataFirstRow = appendWriter.start(rowAccessWindowSize, mergeRowAccessWindowSize, streamMerge);
+        if (dataFirstRow >= 0) {
+            sheetWriters.put(sheetOperate.getSheet(), appendWriter);
         }
-        for (SheetOperate<?> operate : otherSheet) {
-            this.currentSheet = operate;
-            this.columnRangeMap = new HashMap<>();
-            this.columnRangeByKeyMap = new HashMap<>();
-            operate.clearSheet();
-            List<CellField> fields = operate.getFields();
-            if (fields.isEmpty()) {
-                continue;
-            }
-            if (operate.isAutoColumnWidth()) {
-                operate.getSheet().trackAllColumnsForAutoSizing();
-                maxWidthMap.clear();
+        this.appendFirstRow = Math.max(dataFirstRow, 0);
+        this.appendRowIndex = this.appendFirstRow;
+        return this;
+    }
+
+    /**
+     * 追加模式：把一批数据写入第一个Sheet（需要先调用open）
+     * @param data 数据
+     * @return this
+     */
+    public ExcelUtil<T> append(Collection<T> data) {
+        if (data == null) {
+            return this;
+        }
+        return append(data.iterator());
+    }
+
+    /**
+     * 追加模式：把一批数据写入第一个Sheet（需要先调用open）
+     * @param data 数据
+     * @return this
+     */
+    public ExcelUtil<T> append(Iterator<T> data) {
+        if (appendWriter == null) {
+            throw new IllegalStateException("ExcelUtil -> call open() before append()");
+        }
+        List<CellField> fields = sheetOperate.getFields();
+        if (data != null && !fields.isEmpty()) {
+            this.appendRowIndex = appendWriter.writeRows(data, fields, appendRowIndex);
+        }
+        return this;
+    }
+
+    /**
+     * 追加模式：结束第一个Sheet（数据验证、operateSheet），并生成其它Sheet
+     * @return this
+     */
+    public ExcelUtil<T> finish() {
+        if (appendWriter == null) {
+            throw new IllegalStateException("ExcelUtil -> call open() before finish()");
+        }
+        if (!sheetOperate.getFields().isEmpty()) {
+            appendWriter.finish(appendRowIndex > appendFirstRow ? appendRowIndex - 1 : appendFirstRow);
+        }
+        this.appendWriter = null;
+        List<SheetOperate<?>> operates = new ArrayList<>(otherSheet);
+        operates.remove(sheetOperate);
+        render(operates);
+        return this;
+    }
+
+    /**
+     * 生成Sheet：先按顺序创建Sheet和表头（样式、字体在Workbook中共用），再写入数据。
+     * 设置了executor时，多个Sheet的数据并行写入；只有一个Sheet（或使用共享字符串表）时，
+     * 在线程池中分段取值、计算样式，当前线程按顺序写入行
+     */
+    private void render(List<SheetOperate<?>> operates) {
+        List<SheetWriter> writers = new ArrayList<>(operates.size());
+        for (SheetOperate<?> operate : operates) {
+            SheetWriter writer = new SheetWriter(workbook, operate, directXml);
+            if (writer.start(rowAccessWindowSize, mergeRowAccessWindowSize, streamMerge) >= 0) {
+                sheetWriters.put(operate.getSheet(), writer);
+                writers.add(writer);
             }
-            final int dataFirstRow = setExcelTitle(fields) + 1;
-            final int dataEndRow = setExcelData(operate.getData(), fields, dataFirstRow);
-            // 设置数据验证
-            Map<Integer, Collection<String>> dataValidationMap = operate.getDataValidationMap();
-            setDataValidation(operate, dataEndRow, dataValidationMap, columnRangeMap);
-            Map<String, Collection<String>> dataValidationByKeyMap = operate.getDataValidationByKeyMap();
-            setDataValidation(operate, dataEndRow, dataValidationByKeyMap, columnRangeByKeyMap);
-            List<DataValidationItem> dataValidationList = operate.getDataValidationList();
-            if (dataValidationList != null) {
-                for (DataValidationItem dataValidationItem : dataValidationList) {
-                    int firstRow = dataValidationItem.getFirstRow();
-                    int firstCol = dataValidationItem.getFirstCol();
-                    int endRow = dataValidationItem.getEndRow();
-                    int endCol = dataValidationItem.getEndCol();
-                    Collection<String> data = dataValidationItem.getData();
-                    operate.setDataValidation(firstRow, firstCol, endRow, endCol, data);
-                }
+        }
+        // 共享字符串表不是线程安全的，只能在当前线程中写入
+        if (executor == null || useSharedStringsTable || writers.size() < 2) {
+            for (SheetWriter writer : writers) {
+                writer.write(executor);
             }
-            operate.operateSheet();
+            return;
         }
-        return this;
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[writers.size()];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = CompletableFuture.runAsync(writers.get(i)::write, executor);
+        }
+        SheetWriter.join(CompletableFuture.allOf(futures));
     }
 
-    private <K> void setDataValidation(SheetOperate<?> operate,
-                                       int endRow,
-                                       Map<K, Collection<String>> dataValidationMap,
-                                       Map<K, int[]> columnRangeMap) {
-        if (dataValidationMap != null) {
-            dataValidationMap.forEach((key, value) -> {
-                int[] ranges = columnRangeMap.get(key);
-                if (ranges != null) {
-                    int firstRow = ranges[0];
-                    int firstCol = ranges[1];
-                    operate.setDataValidation(firstRow, firstCol, endRow, firstCol, value);
-                }
-            });
+    /**
+     * 通过SXSSFWorkbook删除，同时释放之前的Sheet的临时文件
+     */
+    private void clearSheets() {
+        sheetWriters.clear();
+        for (int i = workbook.getNumberOfSheets() - 1; i >= 0; i--) {
+            workbook.removeSheetAt(i);
         }
     }
 
@@ -437,6 +611,90 @@ public class ExcelUtil<T> implements Operate<T, ExcelUtil<T>> {
         return this;
     }
 
+    /**
+     * 转成ByteBuffer（直接使用输出缓冲区，不再复制一份）
+     * @return ByteBuffer
+     * @throws IOException write异常
+     */
+    public ByteBuffer toByteBuffer() throws IOException {
+        BufferOutputStream os = new BufferOutputStream();
+        workbook.write(os);
+        return os.toByteBuffer();
+    }
+
+    /**
+     * 写入Channel（例如FileChannel、SocketChannel），不在内存中生成完整的文件（不关闭Channel）
+     * @param channel WritableByteChannel
+     * @return this
+     * @throws IOException write异常
+     */
+    public ExcelUtil<T> write(WritableByteChannel channel) throws IOException {
+        // 缓冲zip的小块写入，避免每次都写入Channel
+        OutputStream os = new BufferedOutputStream(Channels.newOutputStream(channel));
+        workbook.write(os);
+        os.flush();
+        return this;
+    }
+
+    /**
+     * 写入OutputStream后删除SXSSFWorkbook的临时文件（之后不能再次写入）
+     * @param os OutputStream流
+     * @return this
+     * @throws IOException write异常
+     */
+    public ExcelUtil<T> writeAndDispose(OutputStream os) throws IOException {
+        try {
+            write(os);
+        } finally {
+            workbook.dispose();
+        }
+        return this;
+    }
+
+    /**
+     * 写入Channel后删除SXSSFWorkbook的临时文件（之后不能再次写入）
+     * @param channel WritableByteChannel
+     * @return this
+     * @throws IOException write异常
+     */
+    public ExcelUtil<T> writeAndDispose(WritableByteChannel channel) throws IOException {
+        try {
+            write(channel);
+        } finally {
+            workbook.dispose();
+        }
+        return this;
+    }
+
+    /**
+     * 写入文件
+     * @param path 文件路径
+     * @return this
+     * @throws IOException write异常
+     */
+    public ExcelUtil<T> writeFile(Path path) throws IOException {
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(path))) {
+            write(os);
+        }
+        return this;
+    }
+
+    /**
+     * 写入临时文件，返回文件路径（可以通过FileChannel.transferTo直接发送，由调用方删除文件）
+     * @return 临时文件路径
+     * @throws IOException write异常
+     */
+    public Path toTempFile() throws IOException {
+        Path path = TempFile.createTempFile("excel", ".xlsx").toPath();
+        try {
+            writeFile(path);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+        return path;
+    }
+
     /**
      * 生成csv格式
      * @return this
@@ -527,6 +785,103 @@ public class ExcelUtil<T> implements Operate<T, ExcelUtil<T>> {
         return writeCsv(filePath, StandardCharsets.UTF_8);
     }
 
+    /**
+     * 将csv直接写入到输出流（UTF-8），不在内存中生成完整的csv
+     * @param os 输出流
+     * @return this
+     * @throws IOException write异常
+     */
+    public ExcelUtil<T> toCsv(OutputStream os) throws IOException {
+        return toCsv(os, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 将csv直接写入到输出流并指定字符集，不在内存中生成完整的csv
+     * @param os 输出流
+     * @param charset 字符集
+     * @return this
+     * @throws IOException write异常
+     */
+    public ExcelUtil<T> toCsv(OutputStream os, Charset charset) throws IOException {
+        return toCsv(getDataIterator(), os, charset);
+    }
+
+    /**
+     * 将数据以csv格式直接写入到输出流并指定字符集（数据可以来自游标等，逐行写入）
+     * @param data 数据
+     * @param os 输出流
+     * @param charset 字符集
+     * @return this
+     * @throws IOException write异常
+     */
+    public ExcelUtil<T> toCsv(Iterator<T> data, OutputStream os, Charset charset) throws IOException {
+        return toCsv(data, os, charset, ',', "\"", "\"\"", "\r\n");
+    }
+
+    /**
+     * 将数据以csv格式直接写入到输出流
+     * @param data 数据
+     * @param os 输出流
+     * @param charset 字符集
+     * @param separator 分隔符
+     * @param label 字段标识
+     * @param escape 转义符
+     * @param line 换行符
+     * @return this
+     * @throws IOException write异常
+     */
+    public ExcelUtil<T> toCsv(Iterator<T> data, OutputStream os, Charset charset,
+                              char separator, CharSequence label, CharSequence escape, String line) throws IOException {
+        new CsvWriter(os, charset, separator, label, escape, line).write(sheetOperate.getFields(), data);
+        return this;
+    }
+
+    /**
+     * 将csv直接写入到Channel并指定字符集，不在内存中生成完整的csv
+     * @param channel WritableByteChannel
+     * @param charset 字符集
+     * @return this
+     * @throws IOException write异常
+     */
+    public ExcelUtil<T> toCsv(WritableByteChannel channel, Charset charset) throws IOException {
+        return toCsv(getDataIterator(), channel, charset);
+    }
+
+    /**
+     * 将数据以csv格式直接写入到Channel并指定字符集（数据可以来自游标等，逐行写入）
+     * @param data 数据
+     * @param channel WritableByteChannel
+     * @param charset 字符集
+     * @return this
+     * @throws IOException write异常
+     */
+    public ExcelUtil<T> toCsv(Iterator<T> data, WritableByteChannel channel, Charset charset) throws IOException {
+        return toCsv(data, channel, charset, ',', "\"", "\"\"", "\r\n");
+    }
+
+    /**
+     * 将数据以csv格式直接写入到Channel
+     * @param data 数据
+     * @param channel WritableByteChannel
+     * @param charset 字符集
+     * @param separator 分隔符
+     * @param label 字段标识
+     * @param escape 转义符
+     * @param line 换行符
+     * @return this
+     * @throws IOException write异常
+     */
+    public ExcelUtil<T> toCsv(Iterator<T> data, WritableByteChannel channel, Charset charset,
+                              char separator, CharSequence label, CharSequence escape, String line) throws IOException {
+        new CsvWriter(channel, charset, separator, label, escape, line).write(sheetOperate.getFields(), data);
+        return this;
+    }
+
+    private Iterator<T> getDataIterator() {
+        List<T> data = sheetOperate.getData();
+        return data == null ? null : data.iterator();
+    }
+
     /**
      * 关闭Workbook流
      */
@@ -546,245 +901,18 @@ public class ExcelUtil<T> implements Operate<T, ExcelUtil<T>> {
         os.close();
     }
 
-    private int setExcelTitle(List<CellField> fieldList) {
-        Class<?> tClass = currentSheet.gettClass();
-        SXSSFSheet sheet = currentSheet.getSheet();
-        ExcelClass excelClass = tClass.getAnnotation(ExcelClass.class);
-        int startRow = excelClass != null ? 1 : 0;
-        int[] ints = setExcelTitle(fieldList, startRow, 0);
-        int maxRow = ints[0], maxCell = ints[1];
-        mergeTitle(startRow, maxRow, fieldList);
-        // 大标题
-        if (excelClass != null) {
-            SXSSFCell cell = sheet.createRow(0).createCell(0);
-            String title = excelClass.title();
-            if (title.isEmpty()) { title = excelClass.value(); }
-            if (title.isEmpty()) {
-                String className = tClass.getSimpleName();
-                title = className.replaceAll("(?<![A-Z]|^)[A-Z]", " $0");
-            }
-            cell.setCellValue(title);
-            // 设置标题样式
-            CellStyle titleStyle = workbook.createCellStyle();
-            IndexedColors background = excelClass.background();
-            if (!IndexedColors.AUTOMATIC.equals(background)) {
-                titleStyle.setFillForegroundColor(background.getIndex());
-                titleStyle.setFillPattern(excelClass.pattern());
-            }
-            titleStyle.setAlignment(excelClass.horizontal());
-            titleStyle.setVerticalAlignment(excelClass.vertical());
-            // 设置标题字体
-            Font font = workbook.createFont();
-            font.setFontHeightInPoints(excelClass.fontSize());
-            titleStyle.setFont(font);
-            // 设置标题边框
-            titleStyle.setBorderTop(BorderStyle.THICK);
-            titleStyle.setTopBorderColor(IndexedColors.BLACK.getIndex());
-            titleStyle.setBorderBottom(BorderStyle.THICK);
-            titleStyle.setBottomBorderColor(IndexedColors.BLACK.getIndex());
-            titleStyle.setBorderLeft(BorderStyle.THICK);
-            titleStyle.setLeftBorderColor(IndexedColors.BLACK.getIndex());
-            titleStyle.setBorderRight(BorderStyle.THICK);
-            titleStyle.setRightBorderColor(IndexedColors.BLACK.getIndex());
-
-            cell.setCellStyle(titleStyle);
-            mergeRegion(0, 0, 0, maxCell, titleStyle);
-        }
-        return maxRow;
-    }
-
-    private int[] setExcelTitle(List<CellField> fields, int rowIndex, int cellIndex) {
-        SXSSFSheet sheet = currentSheet.getSheet();
-        CellStyle titleStyle = currentSheet.getTitleStyle();
-        SXSSFRow row = sheet.getRow(rowIndex);
-        int maxRow = rowIndex;
-        if (row == null) {
-            row = sheet.createRow(rowIndex);
-        }
-        for (CellField field : fields) {
-            SXSSFCell cell = row.getCell(cellIndex);
-            if (cell == null) {
-                cell = row.createCell(cellIndex);
-            }
-            String title = field.getTitle();
-            cell.setCellValue(title);
-            cell.setCellStyle(titleStyle);
-            setColumnWidth(cell, field.getWidth() * 256);
-
-            List<CellField> cellFields = field.getCellFields();
-            if (cellFields != null) {
-                if (title == null || title.isEmpty()) {
-                    int[] area = setExcelTitle(cellFields, rowIndex, cellIndex);
-                    maxRow = Math.max(maxRow, area[0]);
-                    cellIndex = area[1] + 1;
-                    continue;
-                }
-                int[] area = setExcelTitle(cellFields, rowIndex + 1, cellIndex);
-                maxRow = Math.max(maxRow, area[0]);
-                if (area[1] < cellIndex) {
-                    continue;
-                }
-                mergeRegion(rowIndex, rowIndex, cellIndex, cellIndex = area[1], titleStyle);
-            } else {
-                field.setIndex(cellIndex);
-            }
-            currentSheet.operateTitle(cell);
-            cellIndex++;
-        }
-        row.setHeightInPoints(currentSheet.getTitleHeight());
-        return new int[]{maxRow, cellIndex - 1};
-    }
-
-    private void mergeTitle(int rowIndex, int maxRow, List<CellField> fields) {
-        if (maxRow > rowIndex) {
-            CellStyle titleStyle = currentSheet.getTitleStyle();
-            for (CellField field : fields) {
-                List<CellField> cellFields = field.getCellFields();
-                if (cellFields == null) {
-                    int index = field.getIndex();
-                    mergeRegion(rowIndex, maxRow, index, index, titleStyle);
-                } else {
-                    String title = field.getTitle();
-                    if (title == null || title.isEmpty()) {
-                        mergeTitle(rowIndex, maxRow, cellFields);
-                        continue;
-                    }
-                    mergeTitle(rowIndex + 1, maxRow, cellFields);
-                }
-            }
-        }
-    }
-
-    private void mergeRegion(int startRow, int endRow, int startCell, int endCell, CellStyle style) {
-        SXSSFSheet sheet = currentSheet.getSheet();
-        for (int i = startRow; i <= endRow; i++) {
-            SXSSFRow row = sheet.getRow(i);
-            for (int j = startCell; j <= endCell; j++) {
-                SXSSFCell cell = row.getCell(j);
-                if (cell == null) {
-                    cell = row.createCell(j);
-                }
-                cell.setCellStyle(style);
-            }
-        }
-        sheet.addMergedRegion(new CellRangeAddress(startRow, endRow, startCell, endCell));
-    }
-
-    private <R> int setExcelData(Collection<R> dataList, List<CellField> cellFields, int rowIndex) {
-        if (dataList == null || dataList.isEmpty()) {
-            return rowIndex;
-        }
-        SXSSFSheet sheet = currentSheet.getSheet();
-        float rowHeight = currentSheet.getRowHeight();
-        // 设置数据
-        for (R data : dataList) {
-            if (data == null) {
-                continue;
-            }
-            int rowIndexCopy = rowIndex;
-            SXSSFRow row = sheet.getRow(rowIndex);
-            if (row == null) {
-                row = sheet.createRow(rowIndex);
-            }
-            for (CellField cellField : cellFields) {
-                Object value = cellField.getValueFun().apply(data);
-                List<CellField> cellFieldChi = cellField.getCellFields();
-                CellType cellType = cellField.getCellType();
-                if (CellType.LIST.equals(cellType)) {
-                    int rowI = setExcelData((Collection<?>) value, cellFieldChi, rowIndexCopy);
-                    rowIndex = Math.max(rowIndex, rowI);
-                } else if (CellType.OBJECT.equals(cellType)) {
-                    setExcelData(Collections.singletonList(value), cellFieldChi, rowIndexCopy);
-                } else {
-                    int cellIndex = cellField.getIndex();
-                    SXSSFCell cell = row.getCell(cellIndex);
-                    if (cell == null) {
-                        cell = row.createCell(cellIndex);
-                    }
-                    cell.setCellStyle(currentSheet.operateCellStyle(cellField, data));
-                    cellField.setCellStyle(cell.getCellStyle());
-                    cell.setCellType(cellType.getCellType());
-                    setValue(cell, value, cellType);
-                    setColumnWidth(cell, 0);
-                    currentSheet.operateCell(cell, data);
-                    currentSheet.operateCell(cellField.getKey(), cell, data);
-                    currentSheet.operateCell(cellIndex, cell, data);
-                    int[] ranges = {rowIndexCopy, cellIndex};
-                    columnRangeMap.putIfAbsent(cellIndex, ranges);
-                    String key = cellField.getKey();
-                    if (key != null && !key.isEmpty()) {
-                        columnRangeByKeyMap.putIfAbsent(key, ranges);
-                    }
-                }
-            }
-            row.setHeightInPoints(rowHeight);
-            mergeDataRow(cellFields, rowIndexCopy, rowIndex);
-            currentSheet.operateRow(row, data);
-            rowIndex++;
-        }
-        return rowIndex - 1;
-    }
-
-    private void mergeDataRow(List<CellField> cellFields,int startRowIndex, int maxRowIndex) {
-        if (startRowIndex < maxRowIndex) {
-            for (CellField cellField : cellFields) {
-                List<CellField> cellFieldList = cellField.getCellFields();
-                if (cellFieldList == null) {
-                    int columnIndex = cellField.getIndex();
-                    mergeRegion(startRowIndex, maxRowIndex, columnIndex, columnIndex, cellField.getCellStyle());
-                } else if (CellType.OBJECT.equals(cellField.getCellType())){
-                    mergeDataRow(cellFieldList, startRowIndex, maxRowIndex);
-                }
-            }
-        }
-    }
-
+    /**
+     * 设置单元格所在列的列宽（autoColumnWidth时按单元格的内容计算）
+     * @param cell 单元格
+     * @param columnWidth 列宽
+     */
     public void setColumnWidth(SXSSFCell cell, int columnWidth) {
-        if (currentSheet.isAutoColumnWidth()) {
-            int cellIndex = cell.getColumnIndex();
-            SXSSFSheet sheet = currentSheet.getSheet();
-            String valStr = cell.toString();
-            int length = valStr.getBytes().length;
-            if (length < maxWidthMap.computeIfAbsent(cellIndex, key -> length)) {
-                return;
-            }
-            int oldColumnWidth = sheet.getColumnWidth(cellIndex);
-            short fontSize = workbook.getFontAt(cell.getCellStyle().getFontIndex()).getFontHeightInPoints();
-            sheet.autoSizeColumn(cellIndex);
-            int newColumnWidth = sheet.getColumnWidth(cellIndex) + ((length - valStr.length()) * 9 * fontSize);
-            sheet.setColumnWidth(cellIndex, Math.max(oldColumnWidth, newColumnWidth));
-            maxWidthMap.put(cellIndex, length);
-        } else if (columnWidth > 0){
-            int cellIndex = cell.getColumnIndex();
-            SXSSFSheet sheet = currentSheet.getSheet();
-            sheet.setColumnWidth(cellIndex, columnWidth);
-        }
-    }
-
-    private void setValue(SXSSFCell cell, Object value, CellType cellType) {
-        if (value != null && !CellType.BLANK.equals(cellType)) {
-            if (value instanceof LocalDate) {
-                cell.setCellValue((LocalDate) value);
-            } else if (value instanceof LocalDateTime) {
-                cell.setCellValue((LocalDateTime) value);
-            } else if (value instanceof Date) {
-                cell.setCellValue((Date) value);
-            } else if (value instanceof Calendar) {
-                cell.setCellValue((Calendar) value);
-            } else if (value instanceof RichTextString) {
-                cell.setCellValue((RichTextString) value);
-            } else if (CellType.NUMBER.equals(cellType)) {
-                cell.setCellValue(Double.parseDouble(String.valueOf(value)));
-            } else if (CellType.BOOLEAN.equals(cellType)) {
-                cell.setCellValue(Boolean.parseBoolean(String.valueOf(value)));
-            } else if (CellType.STRING.equals(cellType)) {
-                cell.setCellValue(String.valueOf(value));
-            } else if(CellType.FORMULA.equals(cellType)) {
-                cell.setCellValue(String.valueOf(value));
-            } else {
-                cell.setCellValue(String.valueOf(value));
-            }
+        SheetWriter writer = sheetWriters.get(cell.getSheet());
+        if (writer != null) {
+            writer.setColumnWidth(cell, columnWidth);
+        } else if (columnWidth > 0) {
+            // 不是本次生成的Sheet
+            cell.getSheet().setColumnWidth(cell.getColumnIndex(), columnWidth);
         }
     }
-
 }
@@ -0,0 +1,105 @@
+package ymb.github.excel;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.GZIPSheetDataWriter;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.streaming.SheetDataWriter;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * ExcelUtil使用的SXSSFWorkbook，记录每个Sheet的临时文件Writer，
+ * 使SheetXmlWriter可以不创建SXSSFRow/SXSSFCell，直接把行的xml写入临时文件
+ *
+ * @author YinMingBin
+ */
+final class ExcelWorkbook extends SXSSFWorkbook {
+    private final Map<Sheet, SheetXmlWriter.RowOutput> outputMap = new IdentityHashMap<>();
+    private SheetXmlWriter.RowOutput lastOutput;
+
+    ExcelWorkbook(XSSFWorkbook workbook, int rowAccessWindowSize, boolean compressTmpFiles, boolean useSharedStringsTable) {
+        super(workbook, rowAccessWindowSize, compressTmpFiles, useSharedStringsTable);
+    }
+
+    @Override
+    protected SheetDataWriter createSheetDataWriter() throws IOException {
+        // 共享字符串表由SXSSFCell写入，不直接写xml
+        if (getSharedStringSource() != null) {
+            lastOutput = null;
+            return super.createSheetDataWriter();
+        }
+        if (isCompressTempFiles()) {
+            GZIPRowOutput output = new GZIPRowOutput();
+            lastOutput = output;
+            return output;
+        }
+        PlainRowOutput output = new PlainRowOutput();
+        lastOutput = output;
+        return output;
+    }
+
+    @Override
+    public SXSSFSheet createSheet() {
+        SXSSFSheet sheet = super.createSheet();
+        outputMap.put(sheet, lastOutput);
+        return sheet;
+    }
+
+    @Override
+    public SXSSFSheet createSheet(String sheetname) {
+        SXSSFSheet sheet = super.createSheet(sheetname);
+        outputMap.put(sheet, lastOutput);
+        return sheet;
+    }
+
+    @Override
+    public void removeSheetAt(int index) {
+        outputMap.remove(getSheetAt(index));
+        super.removeSheetAt(index);
+    }
+
+    /**
+     * @param sheet 当前Workbook中的Sheet
+     * @return Sheet的临时文件输出（使用共享字符串表时为null）
+     */
+    SheetXmlWriter.RowOutput getRowOutput(Sheet sheet) {
+        return outputMap.get(sheet);
+    }
+
+    private static final class PlainRowOutput extends SheetDataWriter implements SheetXmlWriter.RowOutput {
+        private PlainRowOutput() throws IOException {
+            super();
+        }
+
+        @Override
+        public Writer getWriter() {
+            return _out;
+        }
+
+        @Override
+        public void writeEscaped(String s) throws IOException {
+            outputEscapedString(s);
+        }
+    }
+
+    private static final class GZIPRowOutput extends GZIPSheetDataWriter implements SheetXmlWriter.RowOutput {
+        private GZIPRowOutput() throws IOException {
+            super();
+        }
+
+        @Override
+        public Writer getWriter() {
+            return _out;
+        }
+
+        @Override
+        public void writeEscaped(String s) throws IOException {
+            outputEscapedString(s);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package ymb.github.excel;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * 把属性的get/set方法转换成Function/BiConsumer（每个属性只生成一次）
+ * 公开的类和方法通过LambdaMetafactory生成直接调用，其它情况退回到MethodHandle
+ *
+ * @author YinMingBin
+ */
+final class FieldAccessor {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private FieldAccessor() {}
+
+    /**
+     * get方法 -> (obj) -> value
+     * @param method get方法
+     * @return Function
+     */
+    @SuppressWarnings("unchecked")
+    static Function<Object, Object> getter(Method method) {
+        Class<?> tClass = method.getDeclaringClass();
+        if (canLink(method)) {
+            try {
+                MethodHandle handle = LOOKUP.unreflect(method);
+                CallSite callSite = LambdaMetafactory.metafactory(LOOKUP, "apply",
+                        MethodType.methodType(Function.class),
+                        MethodType.methodType(Object.class, Object.class),
+                        handle,
+                        MethodType.methodType(wrap(method.getReturnType()), tClass));
+                return (Function<Object, Object>) callSite.getTarget().invoke();
+            } catch (Throwable ignored) {
+                // 退回到MethodHandle
+            }
+        }
+        final MethodHandle handle = unreflect(method).asType(MethodType.methodType(Object.class, Object.class));
+        return obj -> {
+            try {
+                return (Object) handle.invokeExact(obj);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new UndeclaredThrowableException(e);
+            }
+        };
+    }
+
+    /**
+     * set方法 -> (obj, value) -> void
+     * @param method set方法
+     * @return BiConsumer
+     */
+    @SuppressWarnings("unchecked")
+    static BiConsumer<Object, Object> setter(Method method) {
+        Class<?> tClass = method.getDeclaringClass();
+        if (canLink(method)) {
+            try {
+                MethodHandle handle = LOOKUP.unreflect(method);
+                CallSite callSite = LambdaMetafactory.metafactory(LOOKUP, "accept",
+                        MethodType.methodType(BiConsumer.class),
+                        MethodType.methodType(void.class, Object.class, Object.class),
+                        handle,
+                        MethodType.methodType(void.class, tClass, wrap(method.getParameterTypes()[0])));
+                return (BiConsumer<Object, Object>) callSite.getTarget().invoke();
+            } catch (Throwable ignored) {
+                // 退回到MethodHandle
+            }
+        }
+        final MethodHandle handle = unreflect(method)
+                .asType(MethodType.methodType(void.class, Object.class, Object.class));
+        return (obj, value) -> {
+            try {
+                handle.invokeExact(obj, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new UndeclaredThrowableException(e);
+            }
+        };
+    }
+
+    /**
+     * int参数的set方法 -> (obj, value) -> void，不装箱
+     * @param method set方法
+     * @return ObjIntConsumer
+     */
+    @SuppressWarnings("unchecked")
+    static ObjIntConsumer<Object> intSetter(Method method) {
+        Object setter = linkSetter(method, ObjIntConsumer.class, int.class);
+        if (setter != null) {
+            return (ObjIntConsumer<Object>) setter;
+        }
+        final MethodHandle handle = unreflect(method).asType(MethodType.methodType(void.class, Object.class, int.class));
+        return (obj, value) -> {
+            try {
+                handle.invokeExact(obj, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new UndeclaredThrowableException(e);
+            }
+        };
+    }
+
+    /**
+     * long参数的set方法 -> (obj, value) -> void，不装箱
+     * @param method set方法
+     * @return ObjLongConsumer
+     */
+    @SuppressWarnings("unchecked")
+    static ObjLongConsumer<Object> longSetter(Method method) {
+        Object setter = linkSetter(method, ObjLongConsumer.class, long.class);
+        if (setter != null) {
+            return (ObjLongConsumer<Object>) setter;
+        }
+        final MethodHandle handle = unreflect(method).asType(MethodType.methodType(void.class, Object.class, long.class));
+        return (obj, value) -> {
+            try {
+                handle.invokeExact(obj, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new UndeclaredThrowableException(e);
+            }
+        };
+    }
+
+    /**
+     * double参数的set方法 -> (obj, value) -> void，不装箱
+     * @param method set方法
+     * @return ObjDoubleConsumer
+     */
+    @SuppressWarnings("unchecked")
+    static ObjDoubleConsumer<Object> doubleSetter(Method method) {
+        Object setter = linkSetter(method, ObjDoubleConsumer.class, double.class);
+        if (setter != null) {
+            return (ObjDoubleConsumer<Object>) setter;
+        }
+        final MethodHandle handle = unreflect(method).asType(MethodType.methodType(void.class, Object.class, double.class));
+        return (obj, value) -> {
+            try {
+                handle.invokeExact(obj, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new UndeclaredThrowableException(e);
+            }
+        };
+    }
+
+    /**
+     * 通过LambdaMetafactory生成基本类型参数的set方法调用
+     * @return 不能生成时返回null
+     */
+    private static Object linkSetter(Method method, Class<?> interfaceClass, Class<?> type) {
+        if (!canLink(method)) {
+            return null;
+        }
+        try {
+            MethodHandle handle = LOOKUP.unreflect(method);
+            CallSite callSite = LambdaMetafactory.metafactory(LOOKUP, "accept",
+                    MethodType.methodType(interfaceClass),
+                    MethodType.methodType(void.class, Object.class, type),
+                    handle,
+                    MethodType.methodType(void.class, method.getDeclaringClass(), type));
+            return callSite.getTarget().invoke();
+        } catch (Throwable ignored) {
+            // 退回到MethodHandle
+            return null;
+        }
+    }
+
+    /**
+     * 生成的lambda类以本类为宿主，只有本类能直接访问目标方法时才能使用LambdaMetafactory
+     */
+    private static boolean canLink(Method method) {
+        Class<?> tClass = method.getDeclaringClass();
+        int modifiers = method.getModifiers();
+        if (Modifier.isStatic(modifiers) || !Modifier.isPublic(modifiers) || !Modifier.isPublic(tClass.getModifiers())) {
+            return false;
+        }
+        try {
+            return Class.forName(tClass.getName(), false, FieldAccessor.class.getClassLoader()) == tClass;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static MethodHandle unreflect(Method method) {
+        try {
+            method.setAccessible(true);
+            MethodHandle handle = LOOKUP.unreflect(method);
+            if (Modifier.isStatic(method.getModifiers())) {
+                // 静态方法忽略传入的对象
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            }
+            return handle;
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Unreflect " + method + " fail", e);
+        }
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        return MethodType.methodType(type).wrap().returnType();
+    }
+}
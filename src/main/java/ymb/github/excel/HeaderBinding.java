@@ -0,0 +1,126 @@
+package ymb.github.excel;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 按表头绑定列：读取一次表头行，用列的标题（没有匹配时用key）找到所在的列下标，设置到本次读取的列副本上，
+ * 之后每一行都直接按下标取单元格；列的顺序调整、多出的列都不影响读取，表头中找不到的列不读取（下标为-1）
+ * 表头的结构与导出时一致：有标题的OBJECT列占一行，子列在下一行并且只在OBJECT标题所在的范围内查找
+ *
+ * @author YinMingBin
+ */
+final class HeaderBinding {
+    private final List<Row> headerRows;
+    /** 已绑定的列，同名的列按顺序绑定到不同的列上 */
+    private final BitSet bound = new BitSet();
+
+    private HeaderBinding(List<Row> headerRows) {
+        this.headerRows = headerRows;
+    }
+
+    /**
+     * @param fields 本次读取的列（会修改列下标）
+     * @param headerRows 表头行（从第一行表头开始）
+     */
+    static void bind(List<CellField> fields, List<Row> headerRows) {
+        new HeaderBinding(headerRows).bind(fields, 0, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return 第一个绑定成功的列下标（都没有绑定时为-1）
+     */
+    private int bind(List<CellField> fields, int depth, int from, int to) {
+        int first = -1;
+        for (CellField field : fields) {
+            int column;
+            if (CellType.OBJECT.equals(field.getCellType())) {
+                String title = field.getTitle();
+                if (title == null || title.isEmpty()) {
+                    column = bind(field.getCellFields(), depth, from, to);
+                } else {
+                    int objectColumn = find(depth, depth, title, field.getKey(), from, to, false);
+                    column = objectColumn < 0
+                            ? bind(field.getCellFields(), depth + 1, from, to)
+                            : bind(field.getCellFields(), depth + 1, objectColumn, nextTitle(depth, objectColumn, to));
+                }
+            } else {
+                // 没有子列的标题会合并到最后一行表头，标题在所在层的行中
+                column = find(depth, headerRows.size() - 1, field.getTitle(), field.getKey(), from, to, true);
+                if (column >= 0) {
+                    bound.set(column);
+                }
+            }
+            field.setIndex(column);
+            if (first < 0 || (column >= 0 && column < first)) {
+                first = column;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * 在fromRow到toRow的表头行中查找标题，找不到时查找key
+     */
+    private int find(int fromRow, int toRow, String title, String key, int from, int to, boolean leaf) {
+        int column = find(fromRow, toRow, title, from, to, leaf);
+        if (column < 0) {
+            column = find(fromRow, toRow, key, from, to, leaf);
+        }
+        return column;
+    }
+
+    private int find(int fromRow, int toRow, String text, int from, int to, boolean leaf) {
+        if (text == null || text.isEmpty()) {
+            return -1;
+        }
+        for (int i = fromRow; i <= toRow && i < headerRows.size(); i++) {
+            Row row = headerRows.get(i);
+            if (row == null) {
+                continue;
+            }
+            for (Cell cell : row) {
+                int column = cell.getColumnIndex();
+                if (column >= from && column < to && !(leaf && bound.get(column)) && text.equals(getText(cell))) {
+                    return column;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * OBJECT标题的范围：到同一行中下一个标题之前
+     */
+    private int nextTitle(int depth, int column, int to) {
+        Row row = headerRows.get(depth);
+        int next = to;
+        for (Cell cell : row) {
+            int index = cell.getColumnIndex();
+            if (index > column && index < next && getText(cell) != null) {
+                next = index;
+            }
+        }
+        return next;
+    }
+
+    private static String getText(Cell cell) {
+        String text;
+        switch (cell.getCellType()) {
+            case STRING:
+                text = cell.getStringCellValue();
+                break;
+            case BLANK:
+            case _NONE:
+                return null;
+            default:
+                text = cell.toString();
+                break;
+        }
+        text = text.trim();
+        return text.isEmpty() ? null : text;
+    }
+}
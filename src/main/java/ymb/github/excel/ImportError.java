@@ -0,0 +1,52 @@
+package ymb.github.excel;
+
+/**
+ * 导入时一个单元格（或一行）的错误
+ *
+ * @author YinMingBin
+ */
+@SuppressWarnings("unused")
+public final class ImportError {
+    private final int row;
+    private final int column;
+    private final String key;
+    private final Throwable cause;
+
+    ImportError(int row, int column, String key, Throwable cause) {
+        this.row = row;
+        this.column = column;
+        this.key = key;
+        this.cause = cause;
+    }
+
+    /**
+     * @return 行下标（从0开始）
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * @return 列下标（创建数据对象失败时为-1）
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * @return 列的key（没有时为null）
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public Throwable getCause() {
+        return cause;
+    }
+
+    @Override
+    public String toString() {
+        return "row " + row + (column < 0 ? "" : ", column " + column) + (key == null || key.isEmpty() ? "" : " (" + key + ")")
+                + ": " + cause;
+    }
+}
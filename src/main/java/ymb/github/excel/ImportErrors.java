@@ -0,0 +1,53 @@
+package ymb.github.excel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一次读取中的错误：只计数，最多记录maxErrors条详情，错误数达到failThreshold时终止读取
+ *
+ * @author YinMingBin
+ */
+final class ImportErrors {
+    private final int maxErrors;
+    private final int failThreshold;
+    private final List<ImportError> errors = new ArrayList<>();
+    private int count;
+
+    /**
+     * @param maxErrors 最多记录的错误详情
+     * @param failThreshold 错误数达到该值时抛出异常（小于等于0时不终止）
+     */
+    ImportErrors(int maxErrors, int failThreshold) {
+        this.maxErrors = maxErrors;
+        this.failThreshold = failThreshold;
+    }
+
+    void add(int row, int column, String key, Throwable cause) {
+        count++;
+        if (errors.size() < maxErrors) {
+            errors.add(new ImportError(row, column, key, cause));
+        }
+        if (failThreshold > 0 && count >= failThreshold) {
+            throw new IllegalStateException("ExcelImportUtil -> " + count + " errors, stop reading at " + new ImportError(row, column, key, cause), cause);
+        }
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    List<ImportError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * 没有使用readResult读取时，读取结束后输出一次错误汇总
+     */
+    void report() {
+        if (count > 0) {
+            System.err.println("ExcelImportUtil -> " + count + " cells failed to read, first: "
+                    + (errors.isEmpty() ? "" : errors.get(0)));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ymb.github.excel;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 导入的数据以及导入时的错误（ExcelImportUtil.readResult）
+ *
+ * @param <T> 数据类型
+ * @author YinMingBin
+ */
+@SuppressWarnings("unused")
+public final class ImportResult<T> {
+    private final List<T> data;
+    private final List<ImportError> errors;
+    private final int errorCount;
+
+    ImportResult(List<T> data, ImportErrors errors) {
+        this.data = data;
+        this.errors = Collections.unmodifiableList(errors.getErrors());
+        this.errorCount = errors.getCount();
+    }
+
+    /**
+     * @return 数据（创建数据对象失败的行不在其中，转换失败的单元格对应的属性没有赋值）
+     */
+    public List<T> getData() {
+        return data;
+    }
+
+    /**
+     * @return 错误详情（最多setMaxErrors(int)条）
+     */
+    public List<ImportError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return 错误总数（包括没有记录详情的）
+     */
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    public boolean hasErrors() {
+        return errorCount > 0;
+    }
+}
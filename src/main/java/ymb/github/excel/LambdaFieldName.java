@@ -0,0 +1,66 @@
+package ymb.github.excel;
+
+import java.lang.invoke.SerializedLambda;
+import java.lang.reflect.Method;
+
+/**
+ * SFunction对应的属性名缓存，按lambda的实现类缓存（同一处方法引用只解析一次）
+ * 使用ClassValue，缓存不会阻止lambda所在的ClassLoader被回收
+ *
+ * @author YinMingBin
+ */
+final class LambdaFieldName {
+    private static final ClassValue<Holder> CACHE = new ClassValue<Holder>() {
+        @Override
+        protected Holder computeValue(Class<?> type) {
+            return new Holder();
+        }
+    };
+
+    private LambdaFieldName() {}
+
+    static String get(SFunction<?, ?> fn) throws ReflectiveOperationException {
+        Holder holder = CACHE.get(fn.getClass());
+        String fieldName = holder.fieldName;
+        if (fieldName == null) {
+            // 解析需要lambda实例，不能在computeValue中完成
+            holder.fieldName = fieldName = resolve(fn);
+        }
+        return fieldName;
+    }
+
+    private static final class Holder {
+        private volatile String fieldName;
+    }
+
+    private static String resolve(SFunction<?, ?> fn) throws ReflectiveOperationException {
+        // 从function取出序列化方法
+        Method writeReplaceMethod = fn.getClass().getDeclaredMethod("writeReplace");
+        writeReplaceMethod.setAccessible(true);
+        // 从序列化方法取出序列化的lambda信息
+        SerializedLambda serializedLambda = (SerializedLambda) writeReplaceMethod.invoke(fn);
+        return toFieldName(serializedLambda.getImplMethodName());
+    }
+
+    /**
+     * getUserName -> userName，isActive -> active
+     */
+    static String toFieldName(String methodName) {
+        int start;
+        if (methodName.startsWith("get") && isUpperCase(methodName, 3)) {
+            start = 3;
+        } else if (methodName.startsWith("is") && isUpperCase(methodName, 2)) {
+            start = 2;
+        } else {
+            return methodName;
+        }
+        char[] chars = new char[methodName.length() - start];
+        methodName.getChars(start, methodName.length(), chars, 0);
+        chars[0] = Character.toLowerCase(chars[0]);
+        return new String(chars);
+    }
+
+    private static boolean isUpperCase(String methodName, int index) {
+        return methodName.length() > index && Character.isUpperCase(methodName.charAt(index));
+    }
+}
@@ -129,6 +129,8 @@ interface Operate<T, R> {
 
     /**
      * 操作Sheet，在数据生成完之后执行
+     * 超出rowAccessWindowSize的行已经写入临时文件，sheet.getRow(n)返回null
+     * （没有设置rowAccessWindowSize时，设置了operateSheet/operateRow的Sheet保留最后100行）
      * @param operateSheet (Sheet, dataList) -> void
      * @return this
      */
@@ -155,6 +157,12 @@ interface Operate<T, R> {
      */
     R autoColumnWidth();
 
+    /**
+     * 启用估算列宽（按字符宽度表估算，不使用AWT，写完数据后统一设置列宽；与autoColumnWidth同时设置时使用估算）
+     * @return this
+     */
+    R estimateColumnWidth();
+
     /**
      * 设置数据校验（下拉序列）
      * @param index 列下标
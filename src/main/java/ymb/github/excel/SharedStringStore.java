@@ -0,0 +1,177 @@
+package ymb.github.excel;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.util.TempFile;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 流式读取时的共享字符串表：把sharedStrings.xml中的字符串（UTF-8）写入临时文件并映射到内存，
+ * 堆中只保存每个字符串的位置和长度，字符串在单元格取值时才解码（没有取值的列不会解码）
+ *
+ * @author YinMingBin
+ */
+final class SharedStringStore implements Closeable {
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLHelper.newXMLInputFactory();
+    /** 每段映射的大小，一个字符串不会跨段 */
+    private static final int SEGMENT_SIZE = 1 << 30;
+    private final File file;
+    private long[] offsets = new long[1024];
+    private int[] lengths = new int[1024];
+    private int count;
+    private MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    private SharedStringStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * @param pkg xlsx文件
+     * @return 共享字符串表（没有sharedStrings.xml时为空表）
+     */
+    static SharedStringStore create(OPCPackage pkg) throws IOException, XMLStreamException {
+        SharedStringStore store = new SharedStringStore(TempFile.createTempFile("ExcelImportUtil-sst", ".tmp"));
+        try {
+            List<PackagePart> parts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+            if (!parts.isEmpty()) {
+                try (InputStream is = parts.get(0).getInputStream()) {
+                    store.load(is);
+                }
+            }
+            store.map();
+        } catch (IOException | XMLStreamException | RuntimeException e) {
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    private void load(InputStream is) throws IOException, XMLStreamException {
+        XMLStreamReader xml = XML_INPUT_FACTORY.createXMLStreamReader(is);
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+            long position = 0;
+            StringBuilder sb = new StringBuilder();
+            while (xml.hasNext()) {
+                if (xml.next() != XMLStreamConstants.START_ELEMENT || !"si".equals(xml.getLocalName())) {
+                    continue;
+                }
+                sb.setLength(0);
+                readText(xml, sb);
+                byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+                long segmentEnd = (position / SEGMENT_SIZE + 1) * SEGMENT_SIZE;
+                if (position + bytes.length > segmentEnd) {
+                    // 补齐到下一段的开始
+                    for (; position < segmentEnd; position++) {
+                        os.write(0);
+                    }
+                }
+                add(position, bytes.length);
+                os.write(bytes);
+                position += bytes.length;
+            }
+        } finally {
+            xml.close();
+        }
+    }
+
+    /**
+     * 读取&lt;si&gt;中的文本（忽略拼音&lt;rPh&gt;，与ReadOnlySharedStringsTable一致）
+     */
+    private static void readText(XMLStreamReader xml, StringBuilder sb) throws XMLStreamException {
+        int depth = 1;
+        boolean phonetic = false;
+        while (depth > 0 && xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                String name = xml.getLocalName();
+                if ("rPh".equals(name)) {
+                    phonetic = true;
+                } else if ("t".equals(name) && !phonetic) {
+                    sb.append(xml.getElementText());
+                    depth--;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                if ("rPh".equals(xml.getLocalName())) {
+                    phonetic = false;
+                }
+            }
+        }
+    }
+
+    private void add(long offset, int length) {
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+            lengths = Arrays.copyOf(lengths, count * 2);
+        }
+        offsets[count] = offset;
+        lengths[count] = length;
+        count++;
+    }
+
+    private void map() throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            int segmentCount = (int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+            segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long start = (long) i * SEGMENT_SIZE;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+            }
+        }
+    }
+
+    /**
+     * @return 字符串的个数
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * 解码第index个字符串（可以在多个线程中同时调用）
+     * @param index 下标
+     * @return 字符串
+     */
+    String getString(int index) {
+        if (index < 0 || index >= count) {
+            throw new IllegalArgumentException("Shared string index (" + index + ") is out of range (0.." + (count - 1) + ")");
+        }
+        int length = lengths[index];
+        if (length == 0) {
+            return "";
+        }
+        long offset = offsets[index];
+        ByteBuffer segment = segments[(int) (offset / SEGMENT_SIZE)].duplicate();
+        segment.position((int) (offset % SEGMENT_SIZE));
+        byte[] bytes = new byte[length];
+        segment.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 删除临时文件（映射在回收前不能删除时，退出时删除）
+     */
+    @Override
+    public void close() {
+        segments = new MappedByteBuffer[0];
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+}
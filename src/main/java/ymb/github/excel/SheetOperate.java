@@ -7,12 +7,7 @@ import org.apache.poi.xssf.streaming.SXSSFCell;
 import org.apache.poi.xssf.streaming.SXSSFRow;
 import org.apache.poi.xssf.streaming.SXSSFSheet;
 import org.apache.poi.xssf.streaming.SXSSFWorkbook;
-import ymb.github.excel.annotation.AllFieldColumn;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.ParameterizedType;
 import java.util.*;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
@@ -45,7 +40,10 @@ public class SheetOperate<T> implements Operate<T, SheetOperate<T>>{
     private Map<String, BiConsumer<CellStyle, Object>> cellStyleFunByKeyMap;
     private Consumer<CellStyle> cellStyleFun = cell -> {};
     private Consumer<CellStyle> titleStyleFun = cell -> {};
+    private CellStylePool cellStylePool;
+    private volatile CellStyle operateStylePrototype;
     private boolean autoColumnWidth = false;
+    private boolean estimateColumnWidth = false;
     private List<Pair<SFunction<T, ?>, ExcelColumnClass>> columnFunctions;
     private Map<Integer, Collection<String>> dataValidationMap;
     private Map<String, Collection<String>> dataValidationByKeyMap;
@@ -84,12 +82,25 @@ public class SheetOperate<T> implements Operate<T, SheetOperate<T>>{
     }
 
     public static <R> SheetOperate<R> create(Class<R> tClass, String sheetName, SXSSFWorkbook workbook) {
-        return new SheetOperate<>(tClass, sheetName);
+        return new SheetOperate<>(tClass, sheetName, workbook);
     }
 
     public void setWorkbook(SXSSFWorkbook workbook) {
         this.workbook = workbook;
         this.dataFormat = workbook.createDataFormat();
+        this.cellStylePool = new CellStylePool(workbook);
+        // 样式属于原来的Workbook，需要重新创建
+        this.fields = null;
+        this.operateStylePrototype = null;
+        this.sheet = null;
+    }
+
+    CellStylePool getCellStylePool() {
+        return cellStylePool;
+    }
+
+    void setCellStylePool(CellStylePool cellStylePool) {
+        this.cellStylePool = cellStylePool;
     }
 
     /**
@@ -283,6 +294,8 @@ public class SheetOperate<T> implements Operate<T, SheetOperate<T>>{
 
     /**
      * 操作Sheet，在数据生成完之后执行
+     * 超出rowAccessWindowSize的行已经写入临时文件，sheet.getRow(n)返回null
+     * （没有设置rowAccessWindowSize时，设置了operateSheet/operateRow的Sheet保留最后100行）
      * @param operateSheet (Sheet, dataList) -> void
      * @return this
      */
@@ -340,6 +353,12 @@ public class SheetOperate<T> implements Operate<T, SheetOperate<T>>{
         return this;
     }
 
+    @Override
+    public SheetOperate<T> estimateColumnWidth() {
+        this.estimateColumnWidth = true;
+        return this;
+    }
+
     /**
      * 设置数据校验（下拉序列）
      * @param index 列下标
@@ -465,24 +484,16 @@ public class SheetOperate<T> implements Operate<T, SheetOperate<T>>{
 
     List<CellField> getFields() {
         if (this.fields == null) {
+            ClassMetadata metadata = ClassMetadata.of(tClass);
             if (columnFunctions == null) {
-                this.fields = getFields(tClass);
+                this.fields = metadata.getExportFields();
             } else {
                 this.fields = new ArrayList<>(columnFunctions.size());
                 for (Pair<SFunction<T, ?>, ExcelColumnClass> pair : columnFunctions) {
                     try {
                         String fieldName = SFunction.getFieldName(pair.getKey());
                         try {
-                            ExcelColumnClass columnClass = pair.getValue();
-                            Field field = gettClass().getDeclaredField(fieldName);
-                            if (columnClass == null) {
-                                AllFieldColumn fieldColumn = tClass.getAnnotation(AllFieldColumn.class);
-                                columnClass = ExcelColumnClass.getExcelColumn(fieldColumn, field);
-                                if (columnClass == null) {
-                                    columnClass = ExcelColumnClass.build();
-                                }
-                            }
-                            this.fields.add(getCellField(gettClass(), field, columnClass));
+                            this.fields.add(metadata.getExportField(fieldName, pair.getValue()));
                         } catch (NoSuchFieldException e) {
                             System.err.println("Get Field: " + fieldName + " Fail!\n" + e.getMessage());
                         }
@@ -491,67 +502,22 @@ public class SheetOperate<T> implements Operate<T, SheetOperate<T>>{
                     }
                 }
             }
+            settingStyle(this.fields);
         }
         return this.fields;
     }
 
-    private List<CellField> getFields(Class<?> tClass) {
-        Field[] fields = tClass.getDeclaredFields();
-        List<CellField> fieldList = new ArrayList<>();
-        AllFieldColumn fieldColumn = tClass.getAnnotation(AllFieldColumn.class);
-        for (Field field : fields) {
-            ExcelColumnClass column = ExcelColumnClass.getExcelColumn(fieldColumn, field);
-            if (column != null) {
-                fieldList.add(getCellField(tClass, field, column));
-            }
-        }
-        sortFields(fieldList);
-        return fieldList;
-    }
-
-    private CellField getCellField(Class<?> tClass, Field field, ExcelColumnClass column) {
-        CellField cellField = new CellField();
-        short index = column.getIndex();
-        cellField.setIndex(index);
-        String key = column.getKey();
-        cellField.setKey(key);
-        String name = field.getName();
-        char[] chars = name.toCharArray();
-        chars[0] = Character.toUpperCase(chars[0]);
-        String nameFormat = String.valueOf(chars);
-        String title = column.getTitle();
-        String methodName = "get" + nameFormat;
-        try {
-            final Method method = tClass.getDeclaredMethod(methodName);
-            cellField.setValueFun(obj -> {
-                try {
-                    return method.invoke(obj);
-                } catch (IllegalAccessException | InvocationTargetException e) {
-                    System.err.println("Get " + name + " Field Get Method Fail：" + methodName + "\n" + e.getMessage());
-                    return "";
-                }
-            });
-        } catch (NoSuchMethodException e) {
-            System.err.println("The " + methodName + " method call failure\n" + e.getMessage());
-        }
-        if (Collection.class.isAssignableFrom(field.getType())) {
-            ParameterizedType genericType = (ParameterizedType) field.getGenericType();
-            Class<?> fieldType = (Class<?>) genericType.getActualTypeArguments()[0];
-            cellField.setCellFields(getFields(fieldType));
-            cellField.setCellType(CellType.LIST);
-            if (title != null && !title.isEmpty()) {
-                cellField.setTitle(title);
-            }
-        } else if (CellType.OBJECT.equals(column.getType())) {
-            Class<?> type = field.getType();
-            cellField.setCellFields(getFields(type));
-            cellField.setCellType(CellType.OBJECT);
-            if (title != null && !title.isEmpty()) {
-                cellField.setTitle(title);
+    /**
+     * 列的样式与Workbook相关，不放在ClassMetadata缓存中，每个Sheet单独创建
+     */
+    private void settingStyle(List<CellField> fields) {
+        for (CellField cellField : fields) {
+            List<CellField> cellFields = cellField.getCellFields();
+            if (cellFields != null) {
+                settingStyle(cellFields);
+                continue;
             }
-        } else {
-            cellField.setTitle(title, nameFormat.replaceAll("(?<![A-Z]|^)[A-Z]", " $0"));
-            cellField.setCellType(column.getType());
+            ExcelColumnClass column = cellField.getColumnClass();
             CellStyle cellStyle = getCellStyle();
             Font font = workbook.getFontAt(cellStyle.getFontIndex());
             column.settingStyle(cellStyle, dataFormat, font);
@@ -560,7 +526,6 @@ public class SheetOperate<T> implements Operate<T, SheetOperate<T>>{
             int width = column.getWidth();
             cellField.setWidth(width > 0 ? width : getColumnWidth());
         }
-        return cellField;
     }
 
     static void sortFields(List<CellField> fieldList) {
@@ -596,22 +561,39 @@ public class SheetOperate<T> implements Operate<T, SheetOperate<T>>{
         }
     }
 
-    void operateCell(String key, SXSSFCell cell, Object rowData) {
-        if (operateCellByKeyMap != null && key != null && !key.isEmpty()) {
-            BiConsumer<SXSSFCell, Object> operateCell = operateCellByKeyMap.get(key);
-            if (operateCell != null) {
-                operateCell.accept(cell, rowData);
-            }
+    /**
+     * @param key 列key
+     * @return 这一列的operateCell回调（没有时为null）
+     */
+    BiConsumer<SXSSFCell, Object> getOperateCell(String key) {
+        if (operateCellByKeyMap == null || key == null || key.isEmpty()) {
+            return null;
         }
+        return operateCellByKeyMap.get(key);
     }
 
-    void operateCell(int index, SXSSFCell cell, Object rowData) {
-        if (operateCellMap != null) {
-            BiConsumer<SXSSFCell, Object> operateCell = operateCellMap.get(index);
-            if (operateCell != null) {
-                operateCell.accept(cell, rowData);
-            }
-        }
+    /**
+     * @param index 列下标
+     * @return 这一列的operateCell回调（没有时为null）
+     */
+    BiConsumer<SXSSFCell, Object> getOperateCell(int index) {
+        return operateCellMap == null ? null : operateCellMap.get(index);
+    }
+
+    /**
+     * 是否设置了可能访问之前的行的回调（operateRow、operateSheet）
+     */
+    boolean hasRowOperate() {
+        return operateRow != null || operateSheet != null;
+    }
+
+    /**
+     * 是否设置了需要SXSSFCell/SXSSFRow的回调（operateCell、operateRow），
+     * 或者需要SXSSFSheet中行信息的回调（operateSheet，如getLastRowNum）
+     */
+    boolean hasCellOperate() {
+        return operateCell != null || operateCellMap != null || operateCellByKeyMap != null || operateRow != null
+                || operateSheet != null;
     }
 
     void operateTitle(SXSSFCell cell) {
@@ -620,27 +602,48 @@ public class SheetOperate<T> implements Operate<T, SheetOperate<T>>{
         }
     }
 
-    CellStyle operateCellStyle(CellField cellField, Object rowData) {
-        CellStyle cellStyle = cellField.getCellStyle();
-        if (cellStyleFunByKeyMap != null) {
-            String key = cellField.getKey();
-            BiConsumer<CellStyle, Object> cellStyleFun = cellStyleFunByKeyMap.get(key);
-            if (cellStyleFun != null) {
-                CellStyle newCellStyle = this.getCellStyle();
-                cellStyleFun.accept(newCellStyle, rowData);
-                cellStyle = newCellStyle;
+    /**
+     * operateCellStyle回调的初始样式（每个Sheet只创建一次）
+     */
+    private CellStyle getOperateStylePrototype() {
+        CellStyle prototype = operateStylePrototype;
+        if (prototype == null) {
+            // 其它Sheet或编码数据的线程可能同时在样式池中创建样式
+            synchronized (cellStylePool) {
+                prototype = operateStylePrototype;
+                if (prototype == null) {
+                    operateStylePrototype = prototype = getCellStyle();
+                }
             }
         }
+        return prototype;
+    }
+
+    /**
+     * 执行样式回调，属性相同的样式从样式池中复用
+     * @param cellStyleFun getCellStyleFun取到的回调
+     * @param rowData 行数据
+     * @return CellStyle
+     */
+    CellStyle operateCellStyle(BiConsumer<CellStyle, Object> cellStyleFun, Object rowData) {
+        return cellStylePool.getCellStyle(getOperateStylePrototype(), cellStyleFun, rowData);
+    }
+
+    /**
+     * 列的operateCellStyle回调，按下标设置的优先于按key设置的
+     * @param cellField 列
+     * @return 回调（没有时为null）
+     */
+    BiConsumer<CellStyle, Object> getCellStyleFun(CellField cellField) {
+        BiConsumer<CellStyle, Object> cellStyleFun = null;
         if (cellStyleFunMap != null) {
-            int index = cellField.getIndex();
-            BiConsumer<CellStyle, Object> cellStyleFun = cellStyleFunMap.get(index);
-            if (cellStyleFun != null) {
-                CellStyle newCellStyle = this.getCellStyle();
-                cellStyleFun.accept(newCellStyle, rowData);
-                cellStyle = newCellStyle;
-            }
+            cellStyleFun = cellStyleFunMap.get(cellField.getIndex());
         }
-        return cellStyle;
+        String key = cellField.getKey();
+        if (cellStyleFun == null && cellStyleFunByKeyMap != null && key != null) {
+            cellStyleFun = cellStyleFunByKeyMap.get(key);
+        }
+        return cellStyleFun;
     }
 
     public List<T> getData() {
@@ -675,6 +678,10 @@ public class SheetOperate<T> implements Operate<T, SheetOperate<T>>{
         return autoColumnWidth;
     }
 
+    public boolean isEstimateColumnWidth() {
+        return estimateColumnWidth;
+    }
+
     public SXSSFWorkbook getWorkbook() {
         return workbook;
     }
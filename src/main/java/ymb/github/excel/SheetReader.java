@@ -0,0 +1,458 @@
+package ymb.github.excel;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.util.TempFile;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.xml.sax.SAXException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.IntFunction;
+
+/**
+ * 流式读取xlsx：按行解析 xl/worksheets/sheetN.xml，内存只与当前行有关
+ *
+ * @author YinMingBin
+ */
+class SheetReader implements Closeable {
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLHelper.newXMLInputFactory();
+    private final OPCPackage pkg;
+    private final File tempFile;
+    // 共享字符串：下标 -> 字符串（单元格取值时才调用）
+    private final IntFunction<String> sharedStrings;
+    private final SharedStringStore sharedStringStore;
+    private final StylesTable stylesTable;
+    private final boolean date1904;
+    private final List<String> sheetNames = new ArrayList<>();
+    private final List<PackagePart> sheetParts = new ArrayList<>();
+
+    /**
+     * @param path xlsx文件路径
+     * @param sharedStringsOnDisk 共享字符串表是否写入临时文件（见SharedStringStore），否则读取到堆中
+     */
+    SheetReader(String path, boolean sharedStringsOnDisk) throws IOException {
+        this(new File(path), false, sharedStringsOnDisk);
+    }
+
+    /**
+     * @param is xlsx文件输入流
+     * @param sharedStringsOnDisk 共享字符串表是否写入临时文件（见SharedStringStore），否则读取到堆中
+     */
+    SheetReader(InputStream is, boolean sharedStringsOnDisk) throws IOException {
+        // OPCPackage.open(InputStream)会把整个压缩包解压到内存，先落盘再按需读取zip条目
+        this(copyToTempFile(is), true, sharedStringsOnDisk);
+    }
+
+    private SheetReader(File file, boolean temp, boolean sharedStringsOnDisk) throws IOException {
+        this.tempFile = temp ? file : null;
+        SharedStringStore sharedStringStore = null;
+        try {
+            this.pkg = OPCPackage.open(file, PackageAccess.READ);
+        } catch (OpenXML4JException | RuntimeException e) {
+            this.close();
+            throw new IOException(e);
+        }
+        try {
+            if (sharedStringsOnDisk) {
+                sharedStringStore = SharedStringStore.create(pkg);
+                this.sharedStrings = sharedStringStore::getString;
+            } else {
+                SharedStrings table = new ReadOnlySharedStringsTable(pkg, false);
+                this.sharedStrings = index -> table.getItemAt(index).getString();
+            }
+            this.sharedStringStore = sharedStringStore;
+            XSSFReader reader = new XSSFReader(pkg);
+            this.stylesTable = reader.getStylesTable();
+            this.date1904 = readDate1904(reader);
+            XSSFReader.SheetIterator iterator = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (iterator.hasNext()) {
+                iterator.next().close();
+                sheetNames.add(iterator.getSheetName());
+                sheetParts.add(iterator.getSheetPart());
+            }
+        } catch (IOException | SAXException | OpenXML4JException | XMLStreamException | RuntimeException e) {
+            // 任何异常都要删除临时文件
+            if (sharedStringStore != null) {
+                sharedStringStore.close();
+            }
+            this.close();
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            throw e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+    }
+
+    private static File copyToTempFile(InputStream is) throws IOException {
+        File file = TempFile.createTempFile("ExcelImportUtil", ".xlsx");
+        try {
+            Files.copy(is, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file.toPath());
+            throw e;
+        }
+        return file;
+    }
+
+    private static boolean readDate1904(XSSFReader reader) throws IOException, OpenXML4JException, XMLStreamException {
+        try (InputStream is = reader.getWorkbookData()) {
+            XMLStreamReader xml = XML_INPUT_FACTORY.createXMLStreamReader(is);
+            try {
+                while (xml.hasNext()) {
+                    if (xml.next() == XMLStreamConstants.START_ELEMENT) {
+                        String name = xml.getLocalName();
+                        if ("workbookPr".equals(name)) {
+                            String value = xml.getAttributeValue(null, "date1904");
+                            return "1".equals(value) || "true".equals(value);
+                        }
+                        if ("sheets".equals(name)) {
+                            return false;
+                        }
+                    }
+                }
+                return false;
+            } finally {
+                xml.close();
+            }
+        }
+    }
+
+    int getSheetIndex(String sheetName) {
+        for (int i = 0; i < sheetNames.size(); i++) {
+            if (sheetNames.get(i).equalsIgnoreCase(sheetName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 按顺序逐行读取Sheet，从startRow开始，遇到空行（行号不连续）即结束
+     *
+     * @param sheetIndex Sheet下标
+     * @param startRow   开始行
+     * @param columns    需要读取的列（其它列的&lt;c&gt;直接跳过，不创建Cell），null时读取所有列
+     * @return 行迭代器（读取结束时自动关闭对应的xml流）
+     */
+    Iterator<Row> rows(int sheetIndex, int startRow, BitSet columns) {
+        if (sheetIndex < 0 || sheetIndex >= sheetParts.size()) {
+            throw new IllegalArgumentException("Sheet index (" + sheetIndex + ") is out of range (0.."
+                    + (sheetParts.size() - 1) + ")");
+        }
+        try {
+            return new RowIterator(sheetParts.get(sheetIndex).getInputStream(), startRow, columns);
+        } catch (IOException | XMLStreamException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 读取从startRow开始的count行（遇到空行时结束），读取后立即关闭xml流，用于读取表头
+     *
+     * @param sheetIndex Sheet下标
+     * @param startRow   开始行
+     * @param count      行数
+     * @return 行
+     */
+    List<Row> readRows(int sheetIndex, int startRow, int count) {
+        RowIterator iterator = (RowIterator) rows(sheetIndex, startRow, null);
+        List<Row> rows = new ArrayList<>(count);
+        try {
+            while (rows.size() < count && iterator.hasNext()) {
+                rows.add(iterator.next());
+            }
+        } finally {
+            iterator.close();
+        }
+        return rows;
+    }
+
+    @Override
+    public void close() {
+        if (sharedStringStore != null) {
+            sharedStringStore.close();
+        }
+        if (pkg != null) {
+            pkg.revert();
+        }
+        if (tempFile != null && !tempFile.delete()) {
+            tempFile.deleteOnExit();
+        }
+    }
+
+    private class RowIterator implements Iterator<Row> {
+        private final InputStream is;
+        private final XMLStreamReader xml;
+        private final BitSet columns;
+        private int expectRow;
+        private int nextRowNum;
+        private StreamingRow next;
+        private boolean finished;
+
+        RowIterator(InputStream is, int startRow, BitSet columns) throws XMLStreamException {
+            this.is = is;
+            this.xml = XML_INPUT_FACTORY.createXMLStreamReader(is);
+            this.columns = columns;
+            this.expectRow = startRow;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !finished) {
+                try {
+                    next = readRow();
+                } catch (XMLStreamException e) {
+                    finish();
+                    throw new RuntimeException(e);
+                }
+                if (next == null) {
+                    finish();
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            StreamingRow row = next;
+            next = null;
+            expectRow++;
+            return row;
+        }
+
+        void close() {
+            if (!finished) {
+                finish();
+            }
+        }
+
+        private void finish() {
+            finished = true;
+            try {
+                xml.close();
+                is.close();
+            } catch (XMLStreamException | IOException e) {
+                System.err.println("SheetReader -> sheet stream close error:" + e.getMessage());
+            }
+        }
+
+        private StreamingRow readRow() throws XMLStreamException {
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.END_ELEMENT && "sheetData".equals(xml.getLocalName())) {
+                    return null;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT || !"row".equals(xml.getLocalName())) {
+                    continue;
+                }
+                String r = xml.getAttributeValue(null, "r");
+                int rowNum = r == null ? nextRowNum : Integer.parseInt(r) - 1;
+                nextRowNum = rowNum + 1;
+                if (rowNum < expectRow) {
+                    skipElement();
+                    continue;
+                }
+                if (rowNum > expectRow) {
+                    // 与Sheet.getRow(rowIndex) == null时结束读取的行为保持一致
+                    return null;
+                }
+                return parseRow(rowNum);
+            }
+            return null;
+        }
+
+        private StreamingRow parseRow(int rowNum) throws XMLStreamException {
+            StreamingRow row = new StreamingRow(rowNum);
+            String ht = xml.getAttributeValue(null, "ht");
+            if (ht != null) {
+                row.setHeightInPointsInternal(Float.parseFloat(ht));
+            }
+            String hidden = xml.getAttributeValue(null, "hidden");
+            row.setZeroHeightInternal("1".equals(hidden) || "true".equals(hidden));
+            String outlineLevel = xml.getAttributeValue(null, "outlineLevel");
+            if (outlineLevel != null) {
+                row.setOutlineLevelInternal(Integer.parseInt(outlineLevel));
+            }
+            int nextColumn = 0;
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.END_ELEMENT && "row".equals(xml.getLocalName())) {
+                    break;
+                }
+                if (event == XMLStreamConstants.START_ELEMENT && "c".equals(xml.getLocalName())) {
+                    String ref = xml.getAttributeValue(null, "r");
+                    int column = ref == null ? nextColumn : getColumnIndex(ref);
+                    nextColumn = column + 1;
+                    if (columns == null || columns.get(column)) {
+                        row.addCell(parseCell(row, column));
+                    } else {
+                        skipElement();
+                    }
+                }
+            }
+            return row;
+        }
+
+        /**
+         * 单元格引用（如AB12）中的列下标
+         */
+        private int getColumnIndex(String ref) {
+            int column = 0;
+            for (int i = 0; i < ref.length(); i++) {
+                char c = ref.charAt(i);
+                if (c >= 'A' && c <= 'Z') {
+                    column = column * 26 + (c - 'A' + 1);
+                } else if (c >= 'a' && c <= 'z') {
+                    column = column * 26 + (c - 'a' + 1);
+                } else if (c != '$') {
+                    break;
+                }
+            }
+            return column - 1;
+        }
+
+        private StreamingCell parseCell(StreamingRow row, int column) throws XMLStreamException {
+            String type = xml.getAttributeValue(null, "t");
+            String s = xml.getAttributeValue(null, "s");
+            CellStyle cellStyle = stylesTable == null ? null : stylesTable.getStyleAt(s == null ? 0 : Integer.parseInt(s));
+            String value = null;
+            String formula = null;
+            StringBuilder inlineString = null;
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.END_ELEMENT && "c".equals(xml.getLocalName())) {
+                    break;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                String name = xml.getLocalName();
+                if ("v".equals(name)) {
+                    value = xml.getElementText();
+                } else if ("f".equals(name)) {
+                    formula = xml.getElementText();
+                } else if ("is".equals(name)) {
+                    inlineString = readInlineString();
+                }
+            }
+            org.apache.poi.ss.usermodel.CellType cellType = getCellType(type, value, inlineString);
+            StreamingCell cell = new StreamingCell(row, column, cellType, cellStyle, date1904);
+            cell.setFormula(formula);
+            switch (cellType) {
+                case NUMERIC:
+                    cell.setNumericValue(Double.parseDouble(value));
+                    break;
+                case BOOLEAN:
+                    cell.setBooleanValue("1".equals(value) || "true".equals(value));
+                    break;
+                case ERROR:
+                    cell.setErrorValue(FormulaError.forString(value).getCode());
+                    break;
+                case STRING:
+                    if (inlineString != null) {
+                        cell.setStringValue(inlineString.toString());
+                    } else if ("s".equals(type)) {
+                        cell.setSharedString(sharedStrings, Integer.parseInt(value));
+                    } else {
+                        cell.setStringValue(value);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            return cell;
+        }
+
+        private org.apache.poi.ss.usermodel.CellType getCellType(String type, String value, StringBuilder inlineString) {
+            if (inlineString != null) {
+                return org.apache.poi.ss.usermodel.CellType.STRING;
+            }
+            if (value == null || value.isEmpty()) {
+                return "str".equals(type) && value != null
+                        ? org.apache.poi.ss.usermodel.CellType.STRING
+                        : org.apache.poi.ss.usermodel.CellType.BLANK;
+            }
+            if (type == null || "n".equals(type)) {
+                return org.apache.poi.ss.usermodel.CellType.NUMERIC;
+            }
+            switch (type) {
+                case "s":
+                case "str":
+                case "inlineStr":
+                    return org.apache.poi.ss.usermodel.CellType.STRING;
+                case "b":
+                    return org.apache.poi.ss.usermodel.CellType.BOOLEAN;
+                case "e":
+                    return org.apache.poi.ss.usermodel.CellType.ERROR;
+                default:
+                    return org.apache.poi.ss.usermodel.CellType.STRING;
+            }
+        }
+
+        /**
+         * 读取&lt;is&gt;中的文本（忽略拼音&lt;rPh&gt;）
+         */
+        private StringBuilder readInlineString() throws XMLStreamException {
+            StringBuilder sb = new StringBuilder();
+            int depth = 1;
+            boolean phonetic = false;
+            while (depth > 0 && xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    String name = xml.getLocalName();
+                    if ("rPh".equals(name)) {
+                        phonetic = true;
+                    } else if ("t".equals(name) && !phonetic) {
+                        sb.append(xml.getElementText());
+                        depth--;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                    if ("rPh".equals(xml.getLocalName())) {
+                        phonetic = false;
+                    }
+                }
+            }
+            return sb;
+        }
+
+        private void skipElement() throws XMLStreamException {
+            int depth = 1;
+            while (depth > 0 && xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,775 @@
+package ymb.github.excel;
+
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFCell;
+import org.apache.poi.xssf.streaming.SXSSFRow;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import ymb.github.excel.annotation.ExcelClass;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+
+/**
+ * 生成一个Sheet（表头、数据、合并单元格、数据验证），每个Sheet的状态都在自己的SheetWriter中
+ * 不同Sheet的SheetWriter可以在不同线程中写数据
+ *
+ * @author YinMingBin
+ */
+class SheetWriter {
+    /**
+     * 并行编码时每个分段的数据条数
+     */
+    private static final int CHUNK_SIZE = 1024;
+    private final SXSSFWorkbook workbook;
+    private final SheetOperate<?> operate;
+    private final boolean directXml;
+    private final CellValueWriter.Dates dates;
+    // 直接写xml时不为null
+    private SheetXmlWriter xmlWriter;
+    // 估算列宽时不为null
+    private ColumnWidthEstimator widthEstimator;
+    // 自适应列宽时每列最长内容的字节数
+    private int[] maxWidths = new int[0];
+    // 所有数据列（包含LIST、OBJECT的子列）
+    private final List<CellField> dataColumns = new ArrayList<>();
+    // 按列下标取列的回调和第一行数据，生成表头之后确定
+    private Column[] columns = new Column[0];
+    private int dataFirstRow;
+    // 流式合并时每条数据写完后在内存中保留的行数（0表示由SXSSF按窗口写出）
+    private int recordWindowSize;
+    // 流式合并时先记录合并区域，finish时一次性添加（null表示直接添加）
+    private List<CellRangeAddress> mergedRegions;
+
+    SheetWriter(SXSSFWorkbook workbook, SheetOperate<?> operate) {
+        this(workbook, operate, false);
+    }
+
+    /**
+     * @param directXml 是否尽量不创建SXSSFCell，直接写入行的xml（见SheetXmlWriter）
+     */
+    SheetWriter(SXSSFWorkbook workbook, SheetOperate<?> operate, boolean directXml) {
+        this.workbook = workbook;
+        this.operate = operate;
+        this.directXml = directXml;
+        this.dates = new CellValueWriter.Dates(workbook.getXSSFWorkbook().isDate1904());
+    }
+
+    /**
+     * 创建Sheet并生成表头（会创建样式，需要在同一个线程中按Sheet的顺序调用）
+     * @param rowAccessWindowSize 数据行的窗口大小（0表示自动）
+     * @param mergeRowAccessWindowSize 有LIST列时的窗口大小
+     * @param streamMerge 有LIST列时是否每写完一条数据再把之前的行写入临时文件（不使用mergeRowAccessWindowSize）
+     * @return 数据的第一行下标，没有列时返回-1
+     */
+    int start(int rowAccessWindowSize, int mergeRowAccessWindowSize, boolean streamMerge) {
+        operate.clearSheet();
+        List<CellField> fields = operate.getFields();
+        if (fields.isEmpty()) {
+            return -1;
+        }
+        SXSSFSheet sheet = operate.getSheet();
+        this.widthEstimator = operate.isEstimateColumnWidth() ? new ColumnWidthEstimator() : null;
+        if (operate.isAutoColumnWidth() && widthEstimator == null) {
+            sheet.trackAllColumnsForAutoSizing();
+        }
+        this.mergedRegions = streamMerge ? new ArrayList<>() : null;
+        this.recordWindowSize = 0;
+        // 表头会回头合并单元格，生成表头时全部保留在内存中
+        sheet.setRandomAccessWindowSize(-1);
+        int dataFirstRow = setExcelTitle(fields) + 1;
+        resolveColumns(fields);
+        boolean hasList = hasList(fields);
+        // 自动时只保留1行；operateRow/operateSheet中可能通过getRow访问之前的行，保留SXSSF默认的行数
+        int autoWindowSize = operate.hasRowOperate() ? SXSSFWorkbook.DEFAULT_WINDOW_SIZE : 1;
+        if (streamMerge && hasList && rowAccessWindowSize != -1) {
+            // 一条数据的行都在内存中时合并单元格，写完后只保留recordWindowSize行，不受一条数据占用的行数限制
+            this.recordWindowSize = rowAccessWindowSize == 0 ? autoWindowSize : Math.max(rowAccessWindowSize, 1);
+            rowAccessWindowSize = -1;
+        } else if (rowAccessWindowSize == 0) {
+            rowAccessWindowSize = hasList ? mergeRowAccessWindowSize : autoWindowSize;
+        }
+        sheet.setRandomAccessWindowSize(rowAccessWindowSize);
+        this.dataFirstRow = dataFirstRow;
+        return dataFirstRow;
+    }
+
+    /**
+     * 把按下标、key设置的回调取到以列下标为下标的数组中，写数据时不再查找Map
+     */
+    private void resolveColumns(List<CellField> fields) {
+        dataColumns.clear();
+        addDataColumns(fields);
+        int maxIndex = -1;
+        for (CellField cellField : dataColumns) {
+            maxIndex = Math.max(maxIndex, cellField.getIndex());
+        }
+        this.columns = new Column[maxIndex + 1];
+        for (CellField cellField : dataColumns) {
+            int index = cellField.getIndex();
+            if (columns[index] == null) {
+                columns[index] = new Column(operate.getCellStyleFun(cellField),
+                        operate.getOperateCell(cellField.getKey()), operate.getOperateCell(index));
+            }
+        }
+    }
+
+    private void addDataColumns(List<CellField> fields) {
+        for (CellField field : fields) {
+            if (field.getCellFields() != null) {
+                addDataColumns(field.getCellFields());
+            } else {
+                dataColumns.add(field);
+            }
+        }
+    }
+
+    /**
+     * 有LIST列时一条数据占多行，合并单元格时需要回头访问这些行
+     */
+    private static boolean hasList(List<CellField> fields) {
+        for (CellField field : fields) {
+            if (CellType.LIST.equals(field.getCellType())) {
+                return true;
+            }
+            if (field.getCellFields() != null && hasList(field.getCellFields())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 写入SheetOperate中的数据并结束Sheet（不同Sheet可以在不同线程中执行）
+     */
+    void write() {
+        write(null);
+    }
+
+    /**
+     * 设置数据验证并执行operateSheet
+     * @param dataEndRow 数据的最后一行下标
+     */
+    void finish(int dataEndRow) {
+        if (mergedRegions != null) {
+            // 合并区域由表头和数据的结构决定，不会重叠，不需要逐个校验
+            SXSSFSheet sheet = operate.getSheet();
+            for (CellRangeAddress region : mergedRegions) {
+                sheet.addMergedRegionUnsafe(region);
+            }
+            mergedRegions.clear();
+        }
+        if (widthEstimator != null) {
+            widthEstimator.apply(operate.getSheet());
+        }
+        Map<Integer, Collection<String>> dataValidationMap = operate.getDataValidationMap();
+        if (dataValidationMap != null) {
+            dataValidationMap.forEach((index, list) -> {
+                if (index < columns.length && columns[index] != null) {
+                    setDataValidation(columns[index].firstRow, index, dataEndRow, list);
+                }
+            });
+        }
+        Map<String, Collection<String>> dataValidationByKeyMap = operate.getDataValidationByKeyMap();
+        if (dataValidationByKeyMap != null) {
+            Set<String> keys = new HashSet<>();
+            for (CellField cellField : dataColumns) {
+                String key = cellField.getKey();
+                Collection<String> list = key == null ? null : dataValidationByKeyMap.get(key);
+                int index = cellField.getIndex();
+                if (list != null && columns[index].firstRow >= 0 && keys.add(key)) {
+                    setDataValidation(columns[index].firstRow, index, dataEndRow, list);
+                }
+            }
+        }
+        List<DataValidationItem> dataValidationList = operate.getDataValidationList();
+        if (dataValidationList != null) {
+            for (DataValidationItem dataValidationItem : dataValidationList) {
+                int firstRow = dataValidationItem.getFirstRow();
+                int firstCol = dataValidationItem.getFirstCol();
+                int endRow = dataValidationItem.getEndRow();
+                int endCol = dataValidationItem.getEndCol();
+                Collection<String> data = dataValidationItem.getData();
+                operate.setDataValidation(firstRow, firstCol, endRow, endCol, data);
+            }
+        }
+        operate.operateSheet();
+    }
+
+    /**
+     * 从列的第一个数据单元格开始设置数据验证（没有数据时不设置）
+     */
+    private void setDataValidation(int firstRow, int column, int endRow, Collection<String> list) {
+        if (firstRow >= 0) {
+            operate.setDataValidation(firstRow, column, endRow, column, list);
+        }
+    }
+
+    private int setExcelTitle(List<CellField> fieldList) {
+        Class<?> tClass = operate.gettClass();
+        SXSSFSheet sheet = operate.getSheet();
+        ExcelClass excelClass = tClass.getAnnotation(ExcelClass.class);
+        int startRow = excelClass != null ? 1 : 0;
+        int[] ints = setExcelTitle(fieldList, startRow, 0);
+        int maxRow = ints[0], maxCell = ints[1];
+        mergeTitle(startRow, maxRow, fieldList);
+        // 大标题
+        if (excelClass != null) {
+            SXSSFCell cell = sheet.createRow(0).createCell(0);
+            String title = excelClass.title();
+            if (title.isEmpty()) { title = excelClass.value(); }
+            if (title.isEmpty()) {
+                String className = tClass.getSimpleName();
+                title = className.replaceAll("(?<![A-Z]|^)[A-Z]", " $0");
+            }
+            cell.setCellValue(title);
+            // 设置标题样式
+            CellStyle titleStyle = workbook.createCellStyle();
+            IndexedColors background = excelClass.background();
+            if (!IndexedColors.AUTOMATIC.equals(background)) {
+                titleStyle.setFillForegroundColor(background.getIndex());
+                titleStyle.setFillPattern(excelClass.pattern());
+            }
+            titleStyle.setAlignment(excelClass.horizontal());
+            titleStyle.setVerticalAlignment(excelClass.vertical());
+            // 设置标题字体
+            Font font = workbook.createFont();
+            font.setFontHeightInPoints(excelClass.fontSize());
+            titleStyle.setFont(font);
+            // 设置标题边框
+            titleStyle.setBorderTop(BorderStyle.THICK);
+            titleStyle.setTopBorderColor(IndexedColors.BLACK.getIndex());
+            titleStyle.setBorderBottom(BorderStyle.THICK);
+            titleStyle.setBottomBorderColor(IndexedColors.BLACK.getIndex());
+            titleStyle.setBorderLeft(BorderStyle.THICK);
+            titleStyle.setLeftBorderColor(IndexedColors.BLACK.getIndex());
+            titleStyle.setBorderRight(BorderStyle.THICK);
+            titleStyle.setRightBorderColor(IndexedColors.BLACK.getIndex());
+
+            cell.setCellStyle(titleStyle);
+            mergeRegion(0, 0, 0, maxCell, titleStyle);
+        }
+        return maxRow;
+    }
+
+    private int[] setExcelTitle(List<CellField> fields, int rowIndex, int cellIndex) {
+        SXSSFSheet sheet = operate.getSheet();
+        CellStyle titleStyle = operate.getTitleStyle();
+        SXSSFRow row = sheet.getRow(rowIndex);
+        int maxRow = rowIndex;
+        if (row == null) {
+            row = sheet.createRow(rowIndex);
+        }
+        for (CellField field : fields) {
+            SXSSFCell cell = row.getCell(cellIndex);
+            if (cell == null) {
+                cell = row.createCell(cellIndex);
+            }
+            String title = field.getTitle();
+            cell.setCellValue(title);
+            cell.setCellStyle(titleStyle);
+            if (widthEstimator != null) {
+                widthEstimator.update(cellIndex, title, null, operate.getTitleSize());
+            } else {
+                setColumnWidth(cell, field.getWidth() * 256);
+            }
+
+            List<CellField> cellFields = field.getCellFields();
+            if (cellFields != null) {
+                if (title == null || title.isEmpty()) {
+                    int[] area = setExcelTitle(cellFields, rowIndex, cellIndex);
+                    maxRow = Math.max(maxRow, area[0]);
+                    cellIndex = area[1] + 1;
+                    continue;
+                }
+                int[] area = setExcelTitle(cellFields, rowIndex + 1, cellIndex);
+                maxRow = Math.max(maxRow, area[0]);
+                if (area[1] < cellIndex) {
+                    continue;
+                }
+                mergeRegion(rowIndex, rowIndex, cellIndex, cellIndex = area[1], titleStyle);
+            } else {
+                field.setIndex(cellIndex);
+            }
+            operate.operateTitle(cell);
+            cellIndex++;
+        }
+        row.setHeightInPoints(operate.getTitleHeight());
+        return new int[]{maxRow, cellIndex - 1};
+    }
+
+    private void mergeTitle(int rowIndex, int maxRow, List<CellField> fields) {
+        if (maxRow > rowIndex) {
+            CellStyle titleStyle = operate.getTitleStyle();
+            for (CellField field : fields) {
+                List<CellField> cellFields = field.getCellFields();
+                if (cellFields == null) {
+                    int index = field.getIndex();
+                    mergeRegion(rowIndex, maxRow, index, index, titleStyle);
+                } else {
+                    String title = field.getTitle();
+                    if (title == null || title.isEmpty()) {
+                        mergeTitle(rowIndex, maxRow, cellFields);
+                        continue;
+                    }
+                    mergeTitle(rowIndex + 1, maxRow, cellFields);
+                }
+            }
+        }
+    }
+
+    private void mergeRegion(int startRow, int endRow, int startCell, int endCell, CellStyle style) {
+        SXSSFSheet sheet = operate.getSheet();
+        for (int i = startRow; i <= endRow; i++) {
+            SXSSFRow row = sheet.getRow(i);
+            for (int j = startCell; j <= endCell; j++) {
+                SXSSFCell cell = row.getCell(j);
+                if (cell == null) {
+                    cell = row.createCell(j);
+                }
+                cell.setCellStyle(style);
+            }
+        }
+        CellRangeAddress region = new CellRangeAddress(startRow, endRow, startCell, endCell);
+        if (mergedRegions != null) {
+            mergedRegions.add(region);
+        } else {
+            sheet.addMergedRegion(region);
+        }
+    }
+
+    /**
+     * @param top 是否是Sheet的数据（不是LIST、OBJECT列的子数据）
+     */
+    private <R> int setExcelData(Collection<R> dataList, List<CellField> cellFields, int rowIndex, boolean top) {
+        if (dataList == null || dataList.isEmpty()) {
+            return rowIndex;
+        }
+        return writeRows(dataList.iterator(), cellFields, rowIndex, top) - 1;
+    }
+
+    /**
+     * 逐行写入Sheet的数据
+     * @return 下一行数据的下标
+     */
+    <R> int writeRows(Iterator<R> iterator, List<CellField> cellFields, int rowIndex) {
+        return writeRows(iterator, cellFields, rowIndex, true);
+    }
+
+    private <R> int writeRows(Iterator<R> iterator, List<CellField> cellFields, int rowIndex, boolean top) {
+        SXSSFSheet sheet = operate.getSheet();
+        float rowHeight = operate.getRowHeight();
+        // 设置数据
+        while (iterator.hasNext()) {
+            R data = iterator.next();
+            if (data == null) {
+                continue;
+            }
+            int rowIndexCopy = rowIndex;
+            SXSSFRow row = sheet.getRow(rowIndex);
+            if (row == null) {
+                row = sheet.createRow(rowIndex);
+            }
+            for (CellField cellField : cellFields) {
+                Object value = cellField.getValueFun().apply(data);
+                List<CellField> cellFieldChi = cellField.getCellFields();
+                CellType cellType = cellField.getCellType();
+                if (CellType.LIST.equals(cellType)) {
+                    int rowI = setExcelData((Collection<?>) value, cellFieldChi, rowIndexCopy, false);
+                    rowIndex = Math.max(rowIndex, rowI);
+                } else if (CellType.OBJECT.equals(cellType)) {
+                    setExcelData(Collections.singletonList(value), cellFieldChi, rowIndexCopy, false);
+                } else {
+                    CellStyle cellStyle = getCellStyle(cellField, data);
+                    cellField.setCellStyle(cellStyle);
+                    writeCell(row, cellField, value, cellStyle, data);
+                }
+            }
+            row.setHeightInPoints(rowHeight);
+            mergeDataRow(cellFields, rowIndexCopy, rowIndex);
+            operate.operateRow(row, data);
+            if (top && recordWindowSize > 0) {
+                try {
+                    sheet.flushRows(recordWindowSize);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            rowIndex++;
+        }
+        return rowIndex;
+    }
+
+    /**
+     * 设置单元格的值和样式，并执行operateCell
+     * @param rowData 单元格所属的数据（OBJECT列为子对象）
+     */
+    private void writeCell(SXSSFRow row, CellField cellField, Object value, CellStyle cellStyle, Object rowData) {
+        int cellIndex = cellField.getIndex();
+        CellType cellType = cellField.getCellType();
+        SXSSFCell cell = row.getCell(cellIndex);
+        if (cell == null) {
+            cell = row.createCell(cellIndex);
+        }
+        cell.setCellStyle(cellStyle);
+        cell.setCellType(cellType.getCellType());
+        setValue(cell, cellField, value);
+        if (widthEstimator != null) {
+            estimateWidth(cellField, value);
+        } else {
+            setColumnWidth(cell, 0);
+        }
+        Column column = columns[cellIndex];
+        operate.operateCell(cell, rowData);
+        if (column.operateCellByKey != null) {
+            column.operateCellByKey.accept(cell, rowData);
+        }
+        if (column.operateCellByIndex != null) {
+            column.operateCellByIndex.accept(cell, rowData);
+        }
+        if (column.firstRow < 0) {
+            column.firstRow = row.getRowNum();
+        }
+    }
+
+    /**
+     * 执行列的operateCellStyle回调，没有回调时使用列的样式
+     */
+    private CellStyle getCellStyle(CellField cellField, Object rowData) {
+        BiConsumer<CellStyle, Object> cellStyleFun = columns[cellField.getIndex()].cellStyleFun;
+        if (cellStyleFun == null) {
+            return cellField.getCellStyle();
+        }
+        return operate.operateCellStyle(cellStyleFun, rowData);
+    }
+
+    /**
+     * 写入SheetOperate中的数据并结束Sheet，数据按CHUNK_SIZE分段，在线程池中取值、执行operateCellStyle，
+     * 当前线程按顺序写入行（有LIST列或数据较少时在当前线程中完成）
+     * @param executor 线程池（null表示在当前线程中完成）
+     */
+    void write(Executor executor) {
+        List<?> data = operate.getData();
+        List<CellField> fields = operate.getFields();
+        boolean parallel = executor != null && data != null && data.size() >= CHUNK_SIZE * 2;
+        if (data == null || (!parallel && !directXml) || hasList(fields)) {
+            finish(setExcelData(data, fields, dataFirstRow, true));
+            return;
+        }
+        List<CellField> columns = new ArrayList<>();
+        flatColumns(fields, columns);
+        this.xmlWriter = createXmlWriter(columns);
+        if (!parallel && xmlWriter == null) {
+            finish(setExcelData(data, fields, dataFirstRow, true));
+            return;
+        }
+        int rowIndex = dataFirstRow;
+        if (parallel) {
+            rowIndex = writeChunks(data, fields, columns, executor);
+        } else {
+            for (Object datum : data) {
+                if (datum != null) {
+                    writeRow(encode(datum, fields, columns), columns, rowIndex++);
+                }
+            }
+        }
+        finish(rowIndex > dataFirstRow ? rowIndex - 1 : dataFirstRow);
+    }
+
+    /**
+     * @return 下一行数据的下标
+     */
+    private int writeChunks(List<?> data, List<CellField> fields, List<CellField> columns, Executor executor) {
+        int chunkCount = (data.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int maxPending = Runtime.getRuntime().availableProcessors() * 2;
+        Deque<CompletableFuture<EncodedRow[]>> pending = new ArrayDeque<>(maxPending);
+        int submitted = 0;
+        int rowIndex = dataFirstRow;
+        try {
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                // 只保留有限的分段在内存中，避免编码的速度超过写入
+                while (submitted < chunkCount && pending.size() < maxPending) {
+                    int from = submitted * CHUNK_SIZE;
+                    List<?> subList = data.subList(from, Math.min(from + CHUNK_SIZE, data.size()));
+                    pending.add(CompletableFuture.supplyAsync(() -> encode(subList, fields, columns), executor));
+                    submitted++;
+                }
+                for (EncodedRow encodedRow : join(pending.poll())) {
+                    writeRow(encodedRow, columns, rowIndex++);
+                }
+            }
+        } finally {
+            for (CompletableFuture<EncodedRow[]> future : pending) {
+                future.cancel(false);
+            }
+        }
+        return rowIndex;
+    }
+
+    /**
+     * 可以直接写xml时（没有operateCell/operateRow/operateSheet回调、autoColumnWidth（估算列宽除外）、公式列，且不使用共享字符串表），
+     * 先把表头的行写入临时文件，之后的数据行由SheetXmlWriter写入
+     * @return 不能直接写xml时返回null
+     */
+    private SheetXmlWriter createXmlWriter(List<CellField> columns) {
+        if (!directXml || !(workbook instanceof ExcelWorkbook)
+                || operate.hasCellOperate() || (operate.isAutoColumnWidth() && widthEstimator == null)) {
+            return null;
+        }
+        for (CellField column : columns) {
+            if (CellType.FORMULA.equals(column.getCellType())) {
+                return null;
+            }
+        }
+        SXSSFSheet sheet = operate.getSheet();
+        SheetXmlWriter.RowOutput output = ((ExcelWorkbook) workbook).getRowOutput(sheet);
+        if (output == null) {
+            return null;
+        }
+        try {
+            sheet.flushRows();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return new SheetXmlWriter(output, dates, columns);
+    }
+
+    /**
+     * 数据列（OBJECT列展开为子列），与EncodedRow中的数组下标一一对应
+     */
+    private static void flatColumns(List<CellField> fields, List<CellField> columns) {
+        for (CellField field : fields) {
+            if (CellType.OBJECT.equals(field.getCellType())) {
+                flatColumns(field.getCellFields(), columns);
+            } else {
+                columns.add(field);
+            }
+        }
+    }
+
+    /**
+     * 在线程池中执行：取值、计算样式（空数据不占行，和writeRows一致）
+     */
+    private EncodedRow[] encode(List<?> dataList, List<CellField> fields, List<CellField> columns) {
+        List<EncodedRow> rows = new ArrayList<>(dataList.size());
+        for (Object data : dataList) {
+            if (data != null) {
+                rows.add(encode(data, fields, columns));
+            }
+        }
+        return rows.toArray(new EncodedRow[0]);
+    }
+
+    private EncodedRow encode(Object data, List<CellField> fields, List<CellField> columns) {
+        EncodedRow row = new EncodedRow(data, columns.size());
+        encode(row, data, fields, 0);
+        return row;
+    }
+
+    /**
+     * @return 下一个列的下标
+     */
+    private int encode(EncodedRow row, Object data, List<CellField> fields, int column) {
+        for (CellField field : fields) {
+            Object value = data == null ? null : field.getValueFun().apply(data);
+            if (CellType.OBJECT.equals(field.getCellType())) {
+                int end = encode(row, value, field.getCellFields(), column);
+                if (value != null) {
+                    row.addObject(value, end);
+                }
+                column = end;
+            } else {
+                if (data != null) {
+                    row.owners[column] = data;
+                    row.values[column] = value;
+                    row.styles[column] = getCellStyle(field, data);
+                }
+                column++;
+            }
+        }
+        return column;
+    }
+
+    private void writeRow(EncodedRow encodedRow, List<CellField> columns, int rowIndex) {
+        if (xmlWriter != null) {
+            writeXmlRow(encodedRow, columns, rowIndex);
+            return;
+        }
+        SXSSFRow row = operate.getSheet().createRow(rowIndex);
+        row.setHeightInPoints(operate.getRowHeight());
+        Object[] owners = encodedRow.owners;
+        int object = 0;
+        for (int i = 0; i < owners.length; i++) {
+            object = operateObjectRows(row, encodedRow, object, i);
+            // OBJECT列的值为null时不创建子列的单元格
+            if (owners[i] != null) {
+                writeCell(row, columns.get(i), encodedRow.values[i], encodedRow.styles[i], owners[i]);
+            }
+        }
+        operateObjectRows(row, encodedRow, object, owners.length);
+        operate.operateRow(row, encodedRow.data);
+    }
+
+    /**
+     * 对在column之前结束的OBJECT列执行operateRow（与writeRows的顺序一致：写完OBJECT的子列后执行）
+     * @return 下一个OBJECT列数据的下标
+     */
+    private int operateObjectRows(SXSSFRow row, EncodedRow encodedRow, int object, int column) {
+        while (object < encodedRow.objectCount && encodedRow.objectEnds[object] == column) {
+            operate.operateRow(row, encodedRow.objects[object++]);
+        }
+        return object;
+    }
+
+    private void writeXmlRow(EncodedRow encodedRow, List<CellField> columns, int rowIndex) {
+        Object[] owners = encodedRow.owners;
+        String rowNum = Integer.toString(rowIndex + 1);
+        try {
+            xmlWriter.beginRow(rowIndex, operate.getRowHeight());
+            for (int i = 0; i < owners.length; i++) {
+                if (owners[i] != null) {
+                    xmlWriter.writeCell(rowNum, i, encodedRow.values[i], encodedRow.styles[i]);
+                    if (widthEstimator != null) {
+                        estimateWidth(columns.get(i), encodedRow.values[i]);
+                    }
+                    Column column = this.columns[columns.get(i).getIndex()];
+                    if (column.firstRow < 0) {
+                        column.firstRow = rowIndex;
+                    }
+                }
+            }
+            xmlWriter.endRow();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 等待执行结果，抛出线程池中的原始异常
+     */
+    static <R> R join(CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 一行数据编码后的结果：每个数据列的值、样式和所属的数据对象，
+     * 以及不为null的OBJECT列的数据（按执行operateRow的顺序）和它最后一个子列之后的列下标
+     */
+    private static final class EncodedRow {
+        private final Object data;
+        private final Object[] owners;
+        private final Object[] values;
+        private final CellStyle[] styles;
+        private Object[] objects;
+        private int[] objectEnds;
+        private int objectCount;
+
+        private EncodedRow(Object data, int columnCount) {
+            this.data = data;
+            this.owners = new Object[columnCount];
+            this.values = new Object[columnCount];
+            this.styles = new CellStyle[columnCount];
+        }
+
+        private void addObject(Object object, int end) {
+            if (objects == null) {
+                objects = new Object[4];
+                objectEnds = new int[4];
+            } else if (objectCount == objects.length) {
+                objects = Arrays.copyOf(objects, objectCount * 2);
+                objectEnds = Arrays.copyOf(objectEnds, objectCount * 2);
+            }
+            objects[objectCount] = object;
+            objectEnds[objectCount++] = end;
+        }
+    }
+
+    /**
+     * 一个数据列的回调（按列下标），以及第一个数据单元格的行下标（用于设置数据验证）
+     */
+    private static final class Column {
+        private final BiConsumer<CellStyle, Object> cellStyleFun;
+        private final BiConsumer<SXSSFCell, Object> operateCellByKey;
+        private final BiConsumer<SXSSFCell, Object> operateCellByIndex;
+        private int firstRow = -1;
+
+        private Column(BiConsumer<CellStyle, Object> cellStyleFun,
+                       BiConsumer<SXSSFCell, Object> operateCellByKey,
+                       BiConsumer<SXSSFCell, Object> operateCellByIndex) {
+            this.cellStyleFun = cellStyleFun;
+            this.operateCellByKey = operateCellByKey;
+            this.operateCellByIndex = operateCellByIndex;
+        }
+    }
+
+    private void mergeDataRow(List<CellField> cellFields,int startRowIndex, int maxRowIndex) {
+        if (startRowIndex < maxRowIndex) {
+            for (CellField cellField : cellFields) {
+                List<CellField> cellFieldList = cellField.getCellFields();
+                if (cellFieldList == null) {
+                    int columnIndex = cellField.getIndex();
+                    mergeRegion(startRowIndex, maxRowIndex, columnIndex, columnIndex, cellField.getCellStyle());
+                } else if (CellType.OBJECT.equals(cellField.getCellType())){
+                    mergeDataRow(cellFieldList, startRowIndex, maxRowIndex);
+                }
+            }
+        }
+    }
+
+    private void estimateWidth(CellField cellField, Object value) {
+        ExcelColumnClass column = cellField.getColumnClass();
+        short fontSize = column.getSize() > 0 ? column.getSize() : operate.getFontSize();
+        widthEstimator.update(cellField.getIndex(), value, column.getFormat(), fontSize);
+    }
+
+    void setColumnWidth(SXSSFCell cell, int columnWidth) {
+        if (operate.isAutoColumnWidth()) {
+            int cellIndex = cell.getColumnIndex();
+            SXSSFSheet sheet = operate.getSheet();
+            String valStr = cell.toString();
+            int length = valStr.getBytes().length;
+            if (cellIndex >= maxWidths.length) {
+                maxWidths = Arrays.copyOf(maxWidths, Math.max(maxWidths.length * 2, cellIndex + 1));
+            }
+            if (length < maxWidths[cellIndex]) {
+                return;
+            }
+            int oldColumnWidth = sheet.getColumnWidth(cellIndex);
+            short fontSize;
+            // 字体表由整个Workbook共用，其它Sheet可能正在创建样式
+            synchronized (operate.getCellStylePool()) {
+                fontSize = workbook.getFontAt(cell.getCellStyle().getFontIndex()).getFontHeightInPoints();
+                sheet.autoSizeColumn(cellIndex);
+            }
+            int newColumnWidth = sheet.getColumnWidth(cellIndex) + ((length - valStr.length()) * 9 * fontSize);
+            sheet.setColumnWidth(cellIndex, Math.max(oldColumnWidth, newColumnWidth));
+            maxWidths[cellIndex] = length;
+        } else if (columnWidth > 0){
+            int cellIndex = cell.getColumnIndex();
+            SXSSFSheet sheet = operate.getSheet();
+            sheet.setColumnWidth(cellIndex, columnWidth);
+        }
+    }
+
+    private void setValue(SXSSFCell cell, CellField cellField, Object value) {
+        CellType cellType = cellField.getCellType();
+        if (value != null && !CellType.BLANK.equals(cellType)) {
+            cellField.getValueWriter().setValue(cell, value, cellType, dates);
+        }
+    }
+}
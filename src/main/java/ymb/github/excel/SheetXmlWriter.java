@@ -0,0 +1,135 @@
+package ymb.github.excel;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.util.CellReference;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * 不创建SXSSFRow/SXSSFCell，直接把数据行的xml写入Sheet的临时文件（sheetN.xml的sheetData部分）
+ * 输出的格式与SXSSF相同：字符串使用inlineStr，样式使用CellStyle的下标
+ *
+ * @author YinMingBin
+ */
+final class SheetXmlWriter {
+    private final RowOutput output;
+    private final Writer out;
+    private final CellValueWriter.Dates dates;
+    /**
+     * 每个数据列的列名（A、B、AA...），与columns的下标一一对应
+     */
+    private final String[] columnNames;
+    private final CellType[] cellTypes;
+    private final CellValueWriter[] valueWriters;
+
+    /**
+     * Sheet临时文件的输出
+     */
+    interface RowOutput {
+        Writer getWriter();
+
+        /**
+         * 写入转义后的字符串
+         */
+        void writeEscaped(String s) throws IOException;
+    }
+
+    SheetXmlWriter(RowOutput output, CellValueWriter.Dates dates, List<CellField> columns) {
+        this.output = output;
+        this.out = output.getWriter();
+        this.dates = dates;
+        int size = columns.size();
+        this.columnNames = new String[size];
+        this.cellTypes = new CellType[size];
+        this.valueWriters = new CellValueWriter[size];
+        for (int i = 0; i < size; i++) {
+            CellField column = columns.get(i);
+            columnNames[i] = CellReference.convertNumToColString(column.getIndex());
+            cellTypes[i] = column.getCellType();
+            valueWriters[i] = column.getValueWriter();
+        }
+    }
+
+    /**
+     * 开始一行（行高使用自定义行高）
+     * @param rowIndex 行下标
+     * @param rowHeight 行高
+     */
+    void beginRow(int rowIndex, float rowHeight) throws IOException {
+        out.write("<row r=\"");
+        out.write(Integer.toString(rowIndex + 1));
+        out.write("\" customHeight=\"true\" ht=\"");
+        out.write(Float.toString(rowHeight));
+        out.write("\">\n");
+    }
+
+    void endRow() throws IOException {
+        out.write("</row>\n");
+    }
+
+    /**
+     * 写入一个单元格，值的转换与SheetWriter.setValue一致（见CellValueWriter）
+     * @param rowNum 行号（从1开始）
+     * @param column 数据列的下标
+     * @param value 值
+     * @param cellStyle 样式
+     */
+    void writeCell(String rowNum, int column, Object value, CellStyle cellStyle) throws IOException {
+        out.write("<c r=\"");
+        out.write(columnNames[column]);
+        out.write(rowNum);
+        out.write('"');
+        int styleIndex = cellStyle == null ? 0 : cellStyle.getIndex() & 0xffff;
+        if (styleIndex != 0) {
+            out.write(" s=\"");
+            out.write(Integer.toString(styleIndex));
+            out.write('"');
+        }
+        CellType cellType = cellTypes[column];
+        if (CellType.BLANK.equals(cellType)) {
+            out.write("></c>");
+            return;
+        }
+        if (value != null) {
+            valueWriters[column].writeXml(this, value, cellType, dates);
+        } else if (CellType.NUMBER.equals(cellType)) {
+            // 与SXSSFCell一致，没有值的数字单元格为0，布尔为false，字符串为空
+            writeNumber(0);
+        } else if (CellType.BOOLEAN.equals(cellType)) {
+            writeBoolean(false);
+        } else {
+            writeString("");
+        }
+    }
+
+    void writeNumber(double value) throws IOException {
+        out.write(" t=\"n\"><v>");
+        out.write(Double.toString(value));
+        out.write("</v></c>");
+    }
+
+    void writeBoolean(boolean value) throws IOException {
+        out.write(" t=\"b\"><v>");
+        out.write(value ? '1' : '0');
+        out.write("</v></c>");
+    }
+
+    void writeString(String value) throws IOException {
+        out.write(" t=\"inlineStr\"><is><t");
+        if (hasLeadingTrailingSpaces(value)) {
+            out.write(" xml:space=\"preserve\"");
+        }
+        out.write('>');
+        output.writeEscaped(value);
+        out.write("</t></is></c>");
+    }
+
+    private static boolean hasLeadingTrailingSpaces(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        return Character.isWhitespace(value.charAt(0)) || Character.isWhitespace(value.charAt(value.length() - 1));
+    }
+}
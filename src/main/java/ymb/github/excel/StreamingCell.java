@@ -0,0 +1,347 @@
+package ymb.github.excel;
+
+import org.apache.poi.ss.formula.eval.ErrorEval;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.util.LocaleUtil;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.function.IntFunction;
+
+/**
+ * 流式读取时的只读Cell（由SheetReader解析sheetN.xml生成，不依赖Workbook）
+ *
+ * @author YinMingBin
+ */
+class StreamingCell implements Cell {
+    private final StreamingRow row;
+    private final int columnIndex;
+    private final org.apache.poi.ss.usermodel.CellType cellType;
+    private final CellStyle cellStyle;
+    private final boolean date1904;
+    private String formula;
+    private double numericValue;
+    private String stringValue;
+    // 共享字符串在取值时才解码
+    private IntFunction<String> sharedStrings;
+    private int sharedStringIndex;
+    private boolean booleanValue;
+    private byte errorValue;
+
+    StreamingCell(StreamingRow row, int columnIndex, org.apache.poi.ss.usermodel.CellType cellType,
+                  CellStyle cellStyle, boolean date1904) {
+        this.row = row;
+        this.columnIndex = columnIndex;
+        this.cellType = cellType;
+        this.cellStyle = cellStyle;
+        this.date1904 = date1904;
+    }
+
+    void setFormula(String formula) {
+        this.formula = formula;
+    }
+
+    void setNumericValue(double numericValue) {
+        this.numericValue = numericValue;
+    }
+
+    void setStringValue(String stringValue) {
+        this.stringValue = stringValue;
+    }
+
+    void setSharedString(IntFunction<String> sharedStrings, int index) {
+        this.sharedStrings = sharedStrings;
+        this.sharedStringIndex = index;
+    }
+
+    private String getStringValue() {
+        if (stringValue == null && sharedStrings != null) {
+            stringValue = sharedStrings.apply(sharedStringIndex);
+            sharedStrings = null;
+        }
+        return stringValue;
+    }
+
+    void setBooleanValue(boolean booleanValue) {
+        this.booleanValue = booleanValue;
+    }
+
+    void setErrorValue(byte errorValue) {
+        this.errorValue = errorValue;
+    }
+
+    private IllegalStateException typeMismatch(org.apache.poi.ss.usermodel.CellType expected) {
+        return new IllegalStateException("Cannot get a " + expected + " value from a " + getValueType() + " cell");
+    }
+
+    private org.apache.poi.ss.usermodel.CellType getValueType() {
+        return formula == null ? cellType : getCachedFormulaResultType();
+    }
+
+    @Override
+    public int getColumnIndex() {
+        return columnIndex;
+    }
+
+    @Override
+    public int getRowIndex() {
+        return row.getRowNum();
+    }
+
+    @Override
+    public Sheet getSheet() {
+        return null;
+    }
+
+    @Override
+    public Row getRow() {
+        return row;
+    }
+
+    @Override
+    public org.apache.poi.ss.usermodel.CellType getCellType() {
+        return formula == null ? cellType : org.apache.poi.ss.usermodel.CellType.FORMULA;
+    }
+
+    @Override
+    public org.apache.poi.ss.usermodel.CellType getCachedFormulaResultType() {
+        if (formula == null) {
+            throw new IllegalStateException("Only formula cells have cached results");
+        }
+        return cellType;
+    }
+
+    @Override
+    public String getCellFormula() {
+        if (formula == null) {
+            throw typeMismatch(org.apache.poi.ss.usermodel.CellType.FORMULA);
+        }
+        return formula;
+    }
+
+    @Override
+    public double getNumericCellValue() {
+        switch (getValueType()) {
+            case BLANK:
+                return 0.0;
+            case NUMERIC:
+                return numericValue;
+            default:
+                throw typeMismatch(org.apache.poi.ss.usermodel.CellType.NUMERIC);
+        }
+    }
+
+    @Override
+    public Date getDateCellValue() {
+        if (getValueType() == org.apache.poi.ss.usermodel.CellType.BLANK) {
+            return null;
+        }
+        return DateUtil.getJavaDate(getNumericCellValue(), date1904);
+    }
+
+    @Override
+    public LocalDateTime getLocalDateTimeCellValue() {
+        if (getValueType() == org.apache.poi.ss.usermodel.CellType.BLANK) {
+            return null;
+        }
+        return DateUtil.getLocalDateTime(getNumericCellValue(), date1904);
+    }
+
+    @Override
+    public RichTextString getRichStringCellValue() {
+        return new XSSFRichTextString(getStringCellValue());
+    }
+
+    @Override
+    public String getStringCellValue() {
+        switch (getValueType()) {
+            case BLANK:
+                return "";
+            case STRING:
+                return getStringValue();
+            default:
+                throw typeMismatch(org.apache.poi.ss.usermodel.CellType.STRING);
+        }
+    }
+
+    @Override
+    public boolean getBooleanCellValue() {
+        switch (getValueType()) {
+            case BLANK:
+                return false;
+            case BOOLEAN:
+                return booleanValue;
+            default:
+                throw typeMismatch(org.apache.poi.ss.usermodel.CellType.BOOLEAN);
+        }
+    }
+
+    @Override
+    public byte getErrorCellValue() {
+        switch (getValueType()) {
+            case BLANK:
+                return 0;
+            case ERROR:
+                return errorValue;
+            default:
+                throw typeMismatch(org.apache.poi.ss.usermodel.CellType.ERROR);
+        }
+    }
+
+    @Override
+    public CellStyle getCellStyle() {
+        return cellStyle;
+    }
+
+    @Override
+    public CellAddress getAddress() {
+        return new CellAddress(getRowIndex(), columnIndex);
+    }
+
+    @Override
+    public Comment getCellComment() {
+        return null;
+    }
+
+    @Override
+    public Hyperlink getHyperlink() {
+        return null;
+    }
+
+    @Override
+    public CellRangeAddress getArrayFormulaRange() {
+        throw new IllegalStateException("Cell " + getAddress() + " is not part of an array formula.");
+    }
+
+    @Override
+    public boolean isPartOfArrayFormulaGroup() {
+        return false;
+    }
+
+    /**
+     * 与XSSFCell.toString保持一致
+     */
+    @Override
+    public String toString() {
+        switch (getCellType()) {
+            case NUMERIC:
+                if (cellStyle != null && DateUtil.isCellDateFormatted(this)) {
+                    DateFormat sdf = new SimpleDateFormat("dd-MMM-yyyy", LocaleUtil.getUserLocale());
+                    sdf.setTimeZone(LocaleUtil.getUserTimeZone());
+                    return sdf.format(getDateCellValue());
+                }
+                return Double.toString(numericValue);
+            case STRING:
+                return getStringValue();
+            case FORMULA:
+                return formula;
+            case BOOLEAN:
+                return booleanValue ? "TRUE" : "FALSE";
+            case ERROR:
+                return ErrorEval.getText(errorValue);
+            default:
+                return "";
+        }
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Streaming cell is read-only");
+    }
+
+    @Override
+    @Deprecated
+    public void setCellType(org.apache.poi.ss.usermodel.CellType cellType) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setBlank() {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCellValue(double value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCellValue(Date value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCellValue(LocalDateTime value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCellValue(Calendar value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCellValue(RichTextString value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCellValue(String value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCellValue(boolean value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCellFormula(String formula) {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeFormula() {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCellErrorValue(byte value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCellStyle(CellStyle style) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setAsActiveCell() {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCellComment(Comment comment) {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeCellComment() {
+        throw readOnly();
+    }
+
+    @Override
+    public void setHyperlink(Hyperlink link) {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeHyperlink() {
+        throw readOnly();
+    }
+}
@@ -0,0 +1,198 @@
+package ymb.github.excel;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 流式读取时的只读Row，只持有当前行的Cell
+ *
+ * @author YinMingBin
+ */
+class StreamingRow implements Row {
+    private final int rowNum;
+    private StreamingCell[] cells = new StreamingCell[16];
+    private int lastCellNum = -1;
+    private int physicalNumberOfCells;
+    private float heightInPoints = -1;
+    private boolean zeroHeight;
+    private int outlineLevel;
+
+    StreamingRow(int rowNum) {
+        this.rowNum = rowNum;
+    }
+
+    void addCell(StreamingCell cell) {
+        int index = cell.getColumnIndex();
+        if (index >= cells.length) {
+            cells = Arrays.copyOf(cells, Math.max(index + 1, cells.length * 2));
+        }
+        if (cells[index] == null) {
+            physicalNumberOfCells++;
+        }
+        cells[index] = cell;
+        lastCellNum = Math.max(lastCellNum, index + 1);
+    }
+
+    void setHeightInPointsInternal(float heightInPoints) {
+        this.heightInPoints = heightInPoints;
+    }
+
+    void setZeroHeightInternal(boolean zeroHeight) {
+        this.zeroHeight = zeroHeight;
+    }
+
+    void setOutlineLevelInternal(int outlineLevel) {
+        this.outlineLevel = outlineLevel;
+    }
+
+    @Override
+    public int getRowNum() {
+        return rowNum;
+    }
+
+    @Override
+    public Cell getCell(int cellnum) {
+        return cellnum >= 0 && cellnum < cells.length ? cells[cellnum] : null;
+    }
+
+    @Override
+    public Cell getCell(int cellnum, MissingCellPolicy policy) {
+        Cell cell = getCell(cellnum);
+        switch (policy) {
+            case RETURN_BLANK_AS_NULL:
+                return cell != null && cell.getCellType() == org.apache.poi.ss.usermodel.CellType.BLANK ? null : cell;
+            case CREATE_NULL_AS_BLANK:
+                return cell != null ? cell : new StreamingCell(this, cellnum,
+                        org.apache.poi.ss.usermodel.CellType.BLANK, null, false);
+            default:
+                return cell;
+        }
+    }
+
+    @Override
+    public short getFirstCellNum() {
+        for (int i = 0; i < lastCellNum; i++) {
+            if (cells[i] != null) {
+                return (short) i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public short getLastCellNum() {
+        return (short) lastCellNum;
+    }
+
+    @Override
+    public int getPhysicalNumberOfCells() {
+        return physicalNumberOfCells;
+    }
+
+    @Override
+    public boolean getZeroHeight() {
+        return zeroHeight;
+    }
+
+    @Override
+    public short getHeight() {
+        return (short) (getHeightInPoints() * 20);
+    }
+
+    @Override
+    public float getHeightInPoints() {
+        return heightInPoints < 0 ? 15 : heightInPoints;
+    }
+
+    @Override
+    public boolean isFormatted() {
+        return false;
+    }
+
+    @Override
+    public CellStyle getRowStyle() {
+        return null;
+    }
+
+    @Override
+    public Iterator<Cell> cellIterator() {
+        List<Cell> list = new ArrayList<>(physicalNumberOfCells);
+        for (int i = 0; i < lastCellNum; i++) {
+            if (cells[i] != null) {
+                list.add(cells[i]);
+            }
+        }
+        return list.iterator();
+    }
+
+    @Override
+    public Sheet getSheet() {
+        return null;
+    }
+
+    @Override
+    public int getOutlineLevel() {
+        return outlineLevel;
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Streaming row is read-only");
+    }
+
+    @Override
+    public Cell createCell(int column) {
+        throw readOnly();
+    }
+
+    @Override
+    public Cell createCell(int column, org.apache.poi.ss.usermodel.CellType type) {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeCell(Cell cell) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setRowNum(int rowNum) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setHeight(short height) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setZeroHeight(boolean zHeight) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setHeightInPoints(float height) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setRowStyle(CellStyle style) {
+        throw readOnly();
+    }
+
+    @Override
+    public void shiftCellsRight(int firstShiftColumnIndex, int lastShiftColumnIndex, int step) {
+        throw readOnly();
+    }
+
+    @Override
+    public void shiftCellsLeft(int firstShiftColumnIndex, int lastShiftColumnIndex, int step) {
+        throw readOnly();
+    }
+}